@@ -0,0 +1,84 @@
+package eit.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import eit.linecode.ControlFrame;
+
+/**
+ * This class is the JMH benchmark of the control frame<br>
+ * the control frame only depends on the name and the length of the file, so
+ * there is no kind of payload. the file of version 1 is a sparse file with the
+ * length of the payload.<br>
+ * usage: mvn -P jmh package, then java -jar target/benchmarks.jar
+ * ControlFrameBenchmark -prof gc
+ *
+ * @author Hamed Nakhei
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControlFrameBenchmark {
+
+	@Param({ "16", "256", "4096", "65536", "1048576", "16777216" })
+	private int size;
+
+	private final ControlFrame controlFrame = new ControlFrame();
+	private File file;
+
+	/**
+	 * creates the file of the control frame of version 1
+	 *
+	 * @throws IOException if the file cannot be created
+	 */
+	@Setup
+	public void setUp() throws IOException {
+		file = File.createTempFile("bench", ".bin");
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(size);
+		}
+	}
+
+	/**
+	 * deletes the file of the control frame of version 1
+	 *
+	 * @throws IOException if the file cannot be deleted
+	 */
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file.toPath());
+	}
+
+	/**
+	 * @return the control frame of version 1
+	 */
+	@Benchmark
+	public byte[] getBytes() {
+		return controlFrame.getBytes(file);
+	}
+
+	/**
+	 * @return the control frame of version 2
+	 */
+	@Benchmark
+	public byte[] toBytes() {
+		return new ControlFrame("bench.bin", size, ControlFrame.V1_FRAME_SIZE, 0).toBytes();
+	}
+}
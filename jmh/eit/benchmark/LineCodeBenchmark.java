@@ -0,0 +1,99 @@
+package eit.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import eit.linecode.DataDecoder8B6T;
+import eit.linecode.DataEncoder8B6T;
+import eit.linecode.Functions;
+
+/**
+ * This class is the JMH benchmark of the 8B6T coding<br>
+ * every benchmark is run for payload sizes from 16 bytes to 16 MB and for
+ * random data, data with only zeros and text, see
+ * {@link CodecBenchmark#payload(String, int)}. the Functions are measured on
+ * the first encoded data stream.<br>
+ * usage: mvn -P jmh package, then java -jar target/benchmarks.jar
+ * LineCodeBenchmark -prof gc
+ *
+ * @author Hamed Nakhei
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineCodeBenchmark {
+
+	@Param({ "16", "256", "4096", "65536", "1048576", "16777216" })
+	private int size;
+
+	@Param({ "random", "zero", "text" })
+	private String kind;
+
+	private final DataEncoder8B6T encoder = new DataEncoder8B6T();
+	private final DataDecoder8B6T decoder = new DataDecoder8B6T();
+	private final Functions functions = new Functions();
+	private byte[] data;
+	private String[] encoded;
+
+	/**
+	 * creates the payload and its encoded data streams
+	 */
+	@Setup
+	public void setUp() {
+		data = CodecBenchmark.payload(kind, size);
+		encoded = encoder.encode(data);
+	}
+
+	/**
+	 * @return the encoded data streams
+	 */
+	@Benchmark
+	public String[] encode() {
+		return encoder.encode(data);
+	}
+
+	/**
+	 * @return the decoded payload
+	 * @throws Exception if the data streams cannot be decoded
+	 */
+	@Benchmark
+	public byte[] decode() throws Exception {
+		return decoder.decode(encoded);
+	}
+
+	/**
+	 * @return the weight of the first data stream
+	 */
+	@Benchmark
+	public int cumulativeWeight() {
+		return functions.cumulativeWeight(encoded[0]);
+	}
+
+	/**
+	 * @return the inverted first data stream
+	 */
+	@Benchmark
+	public String inverted() {
+		return Functions.inverted(encoded[0]);
+	}
+
+	/**
+	 * @return true if the first data stream ends correctly
+	 */
+	@Benchmark
+	public boolean checkEndOfData() {
+		return functions.checkEndOfData(encoded[0], 1);
+	}
+}
@@ -1,16 +1,28 @@
 package eit.application;
 
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import eit.linecode.ControlFrame;
 import eit.linecode.DataDecoder8B6T;
 import eit.linecode.DataEncoder8B6T;
-import eit.medium.Cable;
+import eit.medium.ConcurrentLine;
+import eit.medium.Line;
 
 /**
  * The Easy File Transfer Protocol (EFTP) is a standard communication protocol
@@ -26,22 +38,43 @@ import eit.medium.Cable;
 public class EasyFileTransferProtocol {
 	DataEncoder8B6T encoder;
 	DataDecoder8B6T decoder;
-	public Cable<String[]> cable;
+	public Line<String[]> cable;
 	private static final int MAX_DATA_FRAME_SIZE = 2048;
-	private static final int START_OF_DATA_FROM_DATA_FRAME_INDEX = 4;
-	private static final int LENGTH_OF_INTEGER_IN_BYTE = 4;
-	private static final int FIRST_INDEX_FROM_FILELENGHT = 1;
-	private static final int SECOND_INDEX_FROM_FILELENGHT = 2;
-	private static final int THIRD_INDEX_FROM_FILELENGHT = 3;
+	// how long receiveFile waits for the next frame on a ConcurrentLine
+	private static final long RECEIVE_TIMEOUT_SECONDS = 30;
+	// number of frames which are moved on the cable together
+	private static final int FRAMES_PER_BATCH = 16;
+	// every data frame starts with the segment number
+	private static final int SIZE_OF_SEGMENT_NUMBER = 8;
+	// the segment number of the last frame on every line of an aggregated transfer
+	private static final long END_OF_SEGMENTS = -1;
+	// the optional features of the control frame which this protocol supports
+	private static final int SUPPORTED_FLAGS = ControlFrame.FLAG_SEQUENCE_NUMBER;
+	// how long the source of a receiving pipeline waits before it checks if the file is complete
+	private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	/**
+	 * how the data frames of an aggregated transfer are spread over the lines
+	 */
+	public enum Striping {
+		/** segment i is sent on line i modulo the number of lines */
+		ROUND_ROBIN,
+		/**
+		 * every line takes the next segment as soon as it has sent the previous one,
+		 * so a faster line sends more segments
+		 */
+		ADAPTIVE
+	}
 
 	/**is the standard constructor.<br>
 	 *the following instances are passed on here
 	 * @param enc   an instance from DataEncoder8B6T
 	 * @param dec   an instance from DataDecoder8B6T
-	 * @param cable an instance from Cable class
+	 * @param cable an instance from a Line, for example a Cable or a bounded
+	 *              RingCable
 	 */
 
-	public EasyFileTransferProtocol(DataEncoder8B6T enc, DataDecoder8B6T dec, Cable<String[]> cable) {
+	public EasyFileTransferProtocol(DataEncoder8B6T enc, DataDecoder8B6T dec, Line<String[]> cable) {
 		this.encoder = enc;
 		this.decoder = dec;
 		this.cable = cable;
@@ -52,95 +85,90 @@ public class EasyFileTransferProtocol {
 	 * the Cable class<br>
 	 * In this method, we transport a file encoded in cable. the coding is done by
 	 * 8B6T coding<br>
-	 * First a data frame is created which contains the information from the
-	 * file<br>
+	 * First a control frame of version 2 is created which contains the
+	 * information from the file, see {@link ControlFrame}<br>
 	 * Data frame is also coded and put into cable then the file is divided into
 	 * 2048 data frame segments and coded in 8B6T coding.<br>
-	 * at the end the segments are packed in cables.<br>
+	 * the file is read segment by segment from a FileChannel, and every segment is
+	 * encoded and put in the cable before the next one is read. so only a few
+	 * frames are in memory, no matter how large the file is.<br>
+	 * every data frame starts with its 8 byte segment number, so the receiver can
+	 * put the segments at their place in any order. the last frame contains the
+	 * rest of the file after the full segments, it is empty if the length of the
+	 * file is a multiple of 2048.<br>
+	 * the transfer stops at the first frame which the cable does not accept, for
+	 * example a full RingCable with FullPolicy.FAIL.
 	 * @param file which we want to transmit <br>
+	 * @return true if every frame is accepted by the cable
 	 */
 
-	public void transmitFile(File file) {
-		// file is converted to byte
-		byte[] fileInByteArray = readFileToByteArray(file);
-		ControlFrame control = new ControlFrame();
-		byte[] controlFrame = control.getBytes(file);
-
-		String[] controlFrameEncode = encoder.encode(controlFrame);
-		// Put the control frame in the cable
-		cable.transmit(controlFrameEncode);
-
-		// if file is larger than MAX_DATA_FRAME_SIZE
-
-		if (file.length() > MAX_DATA_FRAME_SIZE) {
-			List<byte[]> dataFrames = new ArrayList<byte[]>();
-			
-			double d = (double) fileInByteArray.length / MAX_DATA_FRAME_SIZE;
-			int numberOfSegments = (int) Math.ceil(d);
-
-			// Calculate remaining bytes if the file is larger than MAX_DATA_FRAME_SIZE byte
-
-			double restByte = ((double) file.length() / MAX_DATA_FRAME_SIZE
-					- ((int) (file.length() / MAX_DATA_FRAME_SIZE))) * MAX_DATA_FRAME_SIZE;
-			int rest = (int) restByte;
-			byte[] dataFrame = new byte[MAX_DATA_FRAME_SIZE + 1];
-			int index = 0;
-			// DataFrame first position => int seqNr in byte
-			// the rest is filled with MAX_DATA_FRAME_SIZE bytes up to the point
-			// MAX_DATA_FRAME_SIZE
-			for (int i = 0; i < numberOfSegments - 1; i++) {
-				dataFrame[0] = (byte) (numberOfSegments - i - 1);
-				for (int j = 1; j < MAX_DATA_FRAME_SIZE + 1; j++) {
-					dataFrame[j] = fileInByteArray[index];
-					index++;
-				}
-				dataFrames.add(dataFrame.clone());
+	public boolean transmitFile(File file) {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ControlFrame control = new ControlFrame(file, MAX_DATA_FRAME_SIZE, ControlFrame.FLAG_SEQUENCE_NUMBER);
+			// Put the control frame in the cable
+			if (!cable.transmit(encoder.encode(control.toBytes()))) {
+				return false;
 			}
-			byte[] restOfBytes = new byte[rest + 1];
 
-			restOfBytes[0] = (byte) 0;
-			for (int j = 1; j < rest; j++) {
-				restOfBytes[j] = fileInByteArray[index];
-				index++;
-			}
-			dataFrames.add(restOfBytes.clone());
-			// encode the list and then put it in cable
-			for (int i = 0; i < dataFrames.size(); i++) {
-				String[] dataEncode = encoder.encode(dataFrames.get(i));
-				cable.transmit(dataEncode);
+			long length = channel.size();
+			int numberOfFrames = (int) (length / MAX_DATA_FRAME_SIZE) + 1;
+			// DataFrame first position => segment number, then the segment
+			byte[] dataFrame = new byte[SIZE_OF_SEGMENT_NUMBER + MAX_DATA_FRAME_SIZE];
+			List<String[]> batch = new ArrayList<String[]>(FRAMES_PER_BATCH);
+			for (int i = 0; i < numberOfFrames; i++) {
+				int size = i < numberOfFrames - 1 ? MAX_DATA_FRAME_SIZE : (int) (length % MAX_DATA_FRAME_SIZE);
+				byte[] frame = size == MAX_DATA_FRAME_SIZE ? dataFrame : new byte[SIZE_OF_SEGMENT_NUMBER + size];
+				ByteBuffer buffer = ByteBuffer.wrap(frame);
+				buffer.putLong(i);
+				readFully(channel, buffer);
+				// the encoder copies the frame, so the array can be filled again
+				batch.add(encoder.encode(frame));
+				if (batch.size() == FRAMES_PER_BATCH || i == numberOfFrames - 1) {
+					if (cable.transmitAll(batch) != batch.size()) {
+						return false;
+					}
+					batch.clear();
+				}
 			}
-		} else {
-			// if file is smaller than MAX_DATA_FRAME_SIZE
-			byte[] dataFrame = new byte[(int) (1 + file.length())];
-			dataFrame[0] = (byte) 0;
-			System.arraycopy(fileInByteArray, 0, dataFrame, 0, fileInByteArray.length);
-			String[] dataEncode =encoder.encode(dataFrame);
-			cable.transmit(dataEncode);
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
 		}
 	}
 
 	/**
-	 * In this function, a file is broken down into a byte array<br>
-	 * Here is the code to read a file into a byte array using FileInputStream
-	 * class<br>
+	 * reads from the current position of the channel until the buffer is full
 	 *
-	 * @param file which we want to convert into byte array<br>
-	 * @return bytes from file in a byte array<br>
+	 * @param channel the file
+	 * @param target  the buffer
+	 * @throws IOException if the file ends before the buffer is full
 	 */
+	private static void readFully(FileChannel channel, ByteBuffer target) throws IOException {
+		while (target.hasRemaining()) {
+			if (channel.read(target) < 0) {
+				throw new EOFException("File is shorter than expected!!!");
+			}
+		}
+	}
 
-	private static byte[] readFileToByteArray(File file) {
-		FileInputStream fis = null;
-		// Creating a byte array using the length of the file
-		// file.length returns long which is cast to int
-		byte[] bArray = new byte[(int) file.length()];
-		try {
-			fis = new FileInputStream(file);
-			fis.read(bArray);
-			fis.close();
-		} catch (IOException ioExp) {
-			ioExp.printStackTrace();
+	/**
+	 * reads from a position of the channel until the buffer is full, several
+	 * threads can read the same channel at the same time
+	 *
+	 * @param channel  the file
+	 * @param target   the buffer
+	 * @param position the position in the file
+	 * @throws IOException if the file ends before the buffer is full
+	 */
+	private static void readFully(FileChannel channel, ByteBuffer target, long position) throws IOException {
+		while (target.hasRemaining()) {
+			int read = channel.read(target, position);
+			if (read < 0) {
+				throw new EOFException("File is shorter than expected!!!");
+			}
+			position += read;
 		}
-		return bArray;
 	}
 
 	/**
@@ -150,47 +178,500 @@ public class EasyFileTransferProtocol {
 	 * <li>File name length</li>
 	 * <li>File length</li>
 	 * <li>File name</li>
-	 * <li>Number of segments</li> then the remaining datas are received and put
-	 * together. At the end, a file is generated and saved with received datas<br>
+	 * <li>Number of segments</li> then the file is created with its full length
+	 * and every data frame is written at its place in the file, which is
+	 * computed from its sequence number. so the frames can arrive in any order
+	 * and a {@link ReassemblyWindow} makes sure that a frame which arrives twice
+	 * is written only once. a frame must not arrive more than the size of the
+	 * window too early.<br>
+	 * a sender without {@link ControlFrame#FLAG_SEQUENCE_NUMBER} sends a 1 byte
+	 * countdown instead of the segment number, then a frame must not arrive more
+	 * than 128 frames too early or too late.<br>
+	 * if the cable is a {@link ConcurrentLine}, every frame is awaited, so this
+	 * method can run in its own thread while another thread transmits the file.
 	 *
 	 * @return the received files which we collect by collecting segments.
 	 */
 	public File receiveFile() {
-		byte[] decodedFile;
+		ControlFrame control;
 		try {
-			decodedFile = decoder.decode(this.cable.receive());
+			control = controlFrame(nextFrame());
 		} catch (Exception e) {
 			return null;
 		}
-		
-		String fileName = "";
-		for (int i = START_OF_DATA_FROM_DATA_FRAME_INDEX; i < decodedFile.length; i++) {
-			fileName = fileName + (char) decodedFile[i];
-		}
-
-		byte[] fileLenght = new byte[LENGTH_OF_INTEGER_IN_BYTE];
-		fileLenght[0] = 0;
-		fileLenght[FIRST_INDEX_FROM_FILELENGHT] = decodedFile[1];
-		fileLenght[SECOND_INDEX_FROM_FILELENGHT] = decodedFile[2];
-		fileLenght[THIRD_INDEX_FROM_FILELENGHT] = decodedFile[THIRD_INDEX_FROM_FILELENGHT];
-		int fileLenghtInInteger = ByteBuffer.wrap(fileLenght).getInt();
-		double segments = fileLenghtInInteger / MAX_DATA_FRAME_SIZE;
-		int numberOfSegments = (int) Math.ceil(segments);
-		File file = new File("rcvd-" + fileName);
-		FileOutputStream fos;
+		return receiveSegments(control);
+	}
+
+	/**
+	 * receives the data frames of the file after its control frame, one after
+	 * another
+	 *
+	 * @param control the control frame of the file
+	 * @return the received file
+	 */
+	private File receiveSegments(ControlFrame control) {
+		long fileLength = control.getLength();
+		// the full segments and the frame with the rest, which is empty if the length is a multiple of the segment
+		int numberOfFrames = (int) (fileLength / MAX_DATA_FRAME_SIZE) + 1;
+		File file = receivedFile(control);
+		try (FileChannel channel = openTarget(file, fileLength)) {
+			ReassemblyWindow window = new ReassemblyWindow(numberOfFrames);
+			boolean sequenceNumber = control.hasFlags(ControlFrame.FLAG_SEQUENCE_NUMBER);
+			// the waiting frames are fetched together, only an empty cable is awaited
+			List<String[]> batch = new ArrayList<String[]>(FRAMES_PER_BATCH);
+			while (!window.isComplete()) {
+				int missing = (int) (numberOfFrames - window.getAccepted());
+				if (cable.drainTo(batch, Math.min(FRAMES_PER_BATCH, missing)) == 0) {
+					batch.add(nextFrame());
+				}
+				for (String[] frame : batch) {
+					ByteBuffer dataFrame = ByteBuffer.wrap(decoder.decode(frame));
+					long index = sequenceNumber ? dataFrame.getLong()
+							: frameIndex(dataFrame.get(), (int) window.getAccepted(), numberOfFrames);
+					int size = index < numberOfFrames - 1 ? MAX_DATA_FRAME_SIZE : (int) (fileLength % MAX_DATA_FRAME_SIZE);
+					if (dataFrame.remaining() != size) {
+						throw new IOException("Wrong segment " + index + "!!!");
+					}
+					if (window.accept(index)) {
+						writeFully(channel, dataFrame, index * MAX_DATA_FRAME_SIZE);
+					}
+				}
+				batch.clear();
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return file;
+
+	}
+
+	/**
+	 * finds the index of a data frame from the countdown of an older sender, which
+	 * counts down to 0 and keeps only the low 8 bits. of all indices with these
+	 * bits the one which is nearest to the expected index is taken.
+	 *
+	 * @param sequence       the first byte of the data frame
+	 * @param expected       the index of the frame if the frames arrive in order
+	 * @param numberOfFrames the number of data frames of the file
+	 * @return the index of the frame, 0 is the first segment of the file
+	 * @throws IOException if there is no such frame
+	 */
+	private static int frameIndex(byte sequence, int expected, int numberOfFrames) throws IOException {
+		int low = (numberOfFrames - 1 - (sequence & 0xFF)) & 0xFF;
+		int index = expected - 128 + ((low - expected + 128) & 0xFF);
+		if (index < 0) {
+			index += 256;
+		} else if (index >= numberOfFrames) {
+			index -= 256;
+		}
+		if (index < 0 || index >= numberOfFrames) {
+			throw new IOException("Wrong sequence number " + (sequence & 0xFF) + "!!!");
+		}
+		return index;
+	}
+
+	/**
+	 * creates the file with its full length, so the segments can be written at
+	 * their place in any order
+	 *
+	 * @param file   the file, an old file with the same name is overwritten
+	 * @param length the length of the file
+	 * @return the channel for writing, which closes the file too
+	 * @throws IOException if the file cannot be created
+	 */
+	private static FileChannel openTarget(File file, long length) throws IOException {
+		RandomAccessFile target = new RandomAccessFile(file, "rw");
+		try {
+			target.setLength(length);
+		} catch (IOException e) {
+			target.close();
+			throw e;
+		}
+		return target.getChannel();
+	}
+
+	/**
+	 * writes the buffer at a position of the channel, several threads can write
+	 * to the same channel at the same time
+	 *
+	 * @param channel  the file
+	 * @param source   the buffer
+	 * @param position the position in the file
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void writeFully(FileChannel channel, ByteBuffer source, long position) throws IOException {
+		while (source.hasRemaining()) {
+			position += channel.write(source, position);
+		}
+	}
+
+	/**
+	 * gives the file in the working directory in which a file is received, the
+	 * name is a plain name because {@link ControlFrame} rejects every other name
+	 *
+	 * @param control the control frame of the file
+	 * @return the file rcvd-name
+	 */
+	private static File receivedFile(ControlFrame control) {
+		return new File("rcvd-" + control.getName());
+	}
+
+	/**
+	 * decodes a control frame of version 1 or 2 and checks that this protocol
+	 * supports it
+	 *
+	 * @param frame the encoded control frame
+	 * @return the control frame
+	 * @throws IOException if the frame size or a flag is not supported
+	 */
+	private ControlFrame controlFrame(String[] frame) throws IOException {
+		ControlFrame control = ControlFrame.readFrom(ByteBuffer.wrap(decoder.decode(frame)));
+		if (control.getFrameSize() != MAX_DATA_FRAME_SIZE) {
+			throw new IOException("Frame size " + control.getFrameSize() + " is not supported!!!");
+		}
+		if ((control.getFlags() & ~SUPPORTED_FLAGS) != 0) {
+			throw new IOException("Flags " + control.getFlags() + " are not supported!!!");
+		}
+		if (control.getLength() / MAX_DATA_FRAME_SIZE >= Integer.MAX_VALUE) {
+			throw new IOException("File is too big!!!");
+		}
+		return control;
+	}
+
+	/**
+	 * transmits a file over several lines at the same time<br>
+	 * the control frame is sent on the first line. then the file is divided into
+	 * segments of MAX_DATA_FRAME_SIZE bytes. every data frame starts with the
+	 * 8 byte segment number, so the receiver can put the segments in order again.
+	 * the {@link Striping} decides which line sends which segment. every line has
+	 * its own thread and its own encoder, so the encoding is spread over the
+	 * cores too. every thread reads its segments directly from their position in
+	 * the file. at the end every line gets a frame with the segment number -1.
+	 *
+	 * @param file     which we want to transmit
+	 * @param lines    the lines, at least one
+	 * @param striping how the segments are spread over the lines
+	 * @return true if every frame is accepted by its line
+	 */
+	public boolean transmitFile(File file, List<? extends Line<String[]>> lines, Striping striping) {
+		FileChannel channel;
+		try {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+		try (channel) {
+			ControlFrame control = new ControlFrame(file, MAX_DATA_FRAME_SIZE, ControlFrame.FLAG_SEQUENCE_NUMBER);
+			return transmitSegments(channel, control.toBytes(), lines, striping);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	private boolean transmitSegments(FileChannel channel, byte[] controlFrame, List<? extends Line<String[]>> lines,
+			Striping striping) throws IOException {
+		if (!lines.get(0).transmit(encoder.encode(controlFrame))) {
+			return false;
+		}
+		long fileLength = channel.size();
+		int numberOfSegments = (int) ((fileLength + MAX_DATA_FRAME_SIZE - 1) / MAX_DATA_FRAME_SIZE);
+		AtomicInteger nextSegment = new AtomicInteger();
+		List<Callable<Boolean>> workers = new ArrayList<Callable<Boolean>>();
+		for (int l = 0; l < lines.size(); l++) {
+			Line<String[]> line = lines.get(l);
+			int first = l;
+			workers.add(() -> {
+				DataEncoder8B6T lineEncoder = new DataEncoder8B6T();
+				boolean accepted = true;
+				int segment = striping == Striping.ROUND_ROBIN ? first : nextSegment.getAndIncrement();
+				while (segment < numberOfSegments) {
+					long offset = (long) segment * MAX_DATA_FRAME_SIZE;
+					int length = (int) Math.min(MAX_DATA_FRAME_SIZE, fileLength - offset);
+					ByteBuffer dataFrame = ByteBuffer.allocate(SIZE_OF_SEGMENT_NUMBER + length);
+					dataFrame.putLong(segment);
+					readFully(channel, dataFrame, offset);
+					accepted &= line.transmit(lineEncoder.encode(dataFrame.array()));
+					segment = striping == Striping.ROUND_ROBIN ? segment + lines.size()
+							: nextSegment.getAndIncrement();
+				}
+				byte[] end = ByteBuffer.allocate(SIZE_OF_SEGMENT_NUMBER).putLong(END_OF_SEGMENTS).array();
+				return line.transmit(lineEncoder.encode(end)) && accepted;
+			});
+		}
 		try {
-			fos = new FileOutputStream(file);
-			int i = 0;
-			for (i = 0; i < numberOfSegments + 1; i++) {
-				byte[] dataFrame = decoder.decode(this.cable.receive());
+			boolean accepted = true;
+			for (Boolean result : runOnLines(workers)) {
+				accepted &= result;
+			}
+			return accepted;
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		}
+	}
 
-				fos.write(dataFrame, 1, dataFrame.length - 1);
+	/**
+	 * receives a file which is transmitted with
+	 * {@link #transmitFile(File, List, Striping)}<br>
+	 * the control frame is received from the first line and the file is created
+	 * with its full length. then every line has its own thread and its own
+	 * decoder, which writes the segments of its line at their place in the file
+	 * until the frame with the segment number -1 arrives. a segment which arrives
+	 * twice is written only once.
+	 *
+	 * @param lines the same lines in the same order as the sender
+	 * @return the received file or null if a frame is missing or wrong
+	 */
+	public File receiveFile(List<? extends Line<String[]>> lines) {
+		ControlFrame control;
+		try {
+			control = controlFrame(nextFrame(lines.get(0)));
+		} catch (Exception e) {
+			return null;
+		}
+		long fileLength = control.getLength();
+		int numberOfSegments = (int) ((fileLength + MAX_DATA_FRAME_SIZE - 1) / MAX_DATA_FRAME_SIZE);
+		ReassemblyWindow window = new ReassemblyWindow(numberOfSegments);
+		File file = receivedFile(control);
+		try (FileChannel channel = openTarget(file, fileLength)) {
+			if (!control.hasFlags(ControlFrame.FLAG_SEQUENCE_NUMBER)) {
+				throw new IOException("Segment numbers are missing!!!");
+			}
+			List<Callable<Void>> workers = new ArrayList<Callable<Void>>();
+			for (Line<String[]> line : lines) {
+				workers.add(() -> {
+					DataDecoder8B6T lineDecoder = new DataDecoder8B6T();
+					while (true) {
+						ByteBuffer dataFrame = ByteBuffer.wrap(lineDecoder.decode(nextFrame(line)));
+						long segment = dataFrame.getLong();
+						if (segment == END_OF_SEGMENTS) {
+							return null;
+						}
+						long offset = segment * MAX_DATA_FRAME_SIZE;
+						if (segment < 0 || segment >= numberOfSegments
+								|| dataFrame.remaining() != Math.min(MAX_DATA_FRAME_SIZE, fileLength - offset)) {
+							throw new IOException("Wrong segment " + segment + "!!!");
+						}
+						// a line which is too far ahead waits until the other lines catch up
+						if (window.accept(segment, RECEIVE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+							// every segment has its own place, so the threads never write the same bytes
+							writeFully(channel, dataFrame, offset);
+						}
+					}
+				});
 			}
-			fos.close();
+			runOnLines(workers);
+			if (!window.isComplete()) {
+				throw new IOException("Segment " + window.getBase() + " is missing!!!");
+			}
+		} catch (ExecutionException | IOException e) {
+			e.printStackTrace();
+			file.delete();
+			return null;
+		}
+		return file;
+	}
+
+	/**
+	 * transmits a file over the cable with a {@link TransferPipeline}<br>
+	 * the control frame is sent first. then the source of the pipeline reads the
+	 * segments from their position in the file, the codec encodes the data frames
+	 * in 8B6T coding, every thread with its own encoder, and the sink transmits
+	 * them on the cable. so the disk, the encoding and the cable work at the same
+	 * time. the data frames are the same as in {@link #transmitFile(File)}, but
+	 * with more than one codec thread they can be sent in a different order.
+	 * more than one sink thread needs a cable which can be used by several
+	 * threads, like a {@link ConcurrentLine}.
+	 *
+	 * @param file     which we want to transmit
+	 * @param pipeline the threads of the stages, it has the statistics of the
+	 *                 stages afterwards
+	 * @return true if every frame is accepted by the cable
+	 */
+	public boolean transmitFile(File file, TransferPipeline pipeline) {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ControlFrame control = new ControlFrame(file, MAX_DATA_FRAME_SIZE, ControlFrame.FLAG_SEQUENCE_NUMBER);
+			if (!cable.transmit(encoder.encode(control.toBytes()))) {
+				return false;
+			}
+			long length = channel.size();
+			long numberOfFrames = length / MAX_DATA_FRAME_SIZE + 1;
+			AtomicLong nextFrame = new AtomicLong();
+			ThreadLocal<DataEncoder8B6T> encoders = ThreadLocal.withInitial(DataEncoder8B6T::new);
+			pipeline.run(() -> {
+				long i = nextFrame.getAndIncrement();
+				if (i >= numberOfFrames) {
+					return null;
+				}
+				long offset = i * MAX_DATA_FRAME_SIZE;
+				ByteBuffer dataFrame = ByteBuffer
+						.allocate(SIZE_OF_SEGMENT_NUMBER + (int) Math.min(MAX_DATA_FRAME_SIZE, length - offset));
+				dataFrame.putLong(i);
+				readFully(channel, dataFrame, offset);
+				return dataFrame.array();
+			}, dataFrame -> encoders.get().encode(dataFrame), frame -> {
+				if (!cable.transmit(frame)) {
+					throw new IOException("Frame is not accepted!!!");
+				}
+			});
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * receives a file from the cable with a {@link TransferPipeline}<br>
+	 * the control frame is received first. then the source of the pipeline
+	 * receives the data frames from the cable, the codec decodes them, every
+	 * thread with its own decoder, and the sink writes every segment at its place
+	 * in the file. the {@link ReassemblyWindow} drops the frames which arrive
+	 * twice. the source takes no more frames than the file still needs, so a
+	 * file which follows on the cable is left for the next receive. more than
+	 * one source thread needs a cable which can be used by
+	 * several threads, like a {@link ConcurrentLine}.<br>
+	 * a file from a sender without {@link ControlFrame#FLAG_SEQUENCE_NUMBER} is
+	 * received like in {@link #receiveFile()}, because its frames can only be put
+	 * in order one after another.
+	 *
+	 * @param pipeline the threads of the stages, it has the statistics of the
+	 *                 stages afterwards
+	 * @return the received file or null if a frame is missing or wrong
+	 */
+	public File receiveFile(TransferPipeline pipeline) {
+		ControlFrame control;
+		try {
+			control = controlFrame(nextFrame());
 		} catch (Exception e) {
+			return null;
+		}
+		if (!control.hasFlags(ControlFrame.FLAG_SEQUENCE_NUMBER)) {
+			return receiveSegments(control);
+		}
+		long fileLength = control.getLength();
+		long numberOfFrames = fileLength / MAX_DATA_FRAME_SIZE + 1;
+		ReassemblyWindow window = new ReassemblyWindow(numberOfFrames);
+		AtomicLong framesTaken = new AtomicLong();
+		ThreadLocal<DataDecoder8B6T> decoders = ThreadLocal.withInitial(DataDecoder8B6T::new);
+		File file = receivedFile(control);
+		try (FileChannel channel = openTarget(file, fileLength)) {
+			pipeline.run(() -> {
+				long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(RECEIVE_TIMEOUT_SECONDS);
+				// a frame is only taken from the cable if the frames which are taken
+				// already cannot complete the file, a frame which turns out to be a
+				// duplicate frees its place again. so the frames of the next file stay
+				// on the cable.
+				while (true) {
+					if (window.isComplete()) {
+						return null;
+					}
+					long taken = framesTaken.get();
+					if (taken - window.getDuplicates() < numberOfFrames) {
+						if (framesTaken.compareAndSet(taken, taken + 1)) {
+							break;
+						}
+						continue;
+					}
+					if (System.nanoTime() - deadline > 0) {
+						throw new IOException("Segment " + window.getBase() + " is missing!!!");
+					}
+					TimeUnit.NANOSECONDS.sleep(POLL_NANOS);
+				}
+				while (true) {
+					String[] frame = pollFrame(cable, POLL_NANOS);
+					if (frame != null) {
+						return frame;
+					}
+					if (System.nanoTime() - deadline > 0) {
+						throw new IOException("Segment " + window.getBase() + " is missing!!!");
+					}
+				}
+			}, frame -> {
+				ByteBuffer dataFrame = ByteBuffer.wrap(decoders.get().decode(frame));
+				long index = dataFrame.getLong(0);
+				int size = index < numberOfFrames - 1 ? MAX_DATA_FRAME_SIZE : (int) (fileLength % MAX_DATA_FRAME_SIZE);
+				if (index < 0 || index >= numberOfFrames || dataFrame.limit() - SIZE_OF_SEGMENT_NUMBER != size) {
+					throw new IOException("Wrong segment " + index + "!!!");
+				}
+				return dataFrame;
+			}, dataFrame -> {
+				long index = dataFrame.getLong();
+				if (window.accept(index)) {
+					writeFully(channel, dataFrame, index * MAX_DATA_FRAME_SIZE);
+				}
+			});
+		} catch (IOException e) {
 			e.printStackTrace();
+			file.delete();
+			return null;
 		}
 		return file;
+	}
 
+	/**
+	 * fetch the next frame from a line, on a ConcurrentLine this method waits
+	 * for it, on another Line it waits only if the line is empty
+	 *
+	 * @param line  the line
+	 * @param nanos how long this method waits
+	 * @return the next encoded frame or null if there is none in time
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	private static String[] pollFrame(Line<String[]> line, long nanos) throws InterruptedException {
+		if (line instanceof ConcurrentLine) {
+			try {
+				return ((ConcurrentLine<String[]>) line).receive(nanos, TimeUnit.NANOSECONDS);
+			} catch (NoSuchElementException e) {
+				return null;
+			}
+		}
+		String[] frame = line.poll();
+		if (frame == null) {
+			TimeUnit.NANOSECONDS.sleep(nanos);
+		}
+		return frame;
+	}
+
+	/**
+	 * runs one worker for every line, each in its own thread
+	 *
+	 * @return the results in the order of the workers
+	 * @throws ExecutionException if a worker fails
+	 */
+	private static <T> List<T> runOnLines(List<Callable<T>> workers) throws ExecutionException {
+		ExecutorService pool = Executors.newFixedThreadPool(workers.size());
+		try {
+			List<T> results = new ArrayList<T>();
+			for (Future<T> future : pool.invokeAll(workers)) {
+				results.add(future.get());
+			}
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ExecutionException(e);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * fetch the next frame from the cable, on a ConcurrentLine this method waits
+	 * until the sender has transmitted it
+	 *
+	 * @return the next encoded frame
+	 * @throws NoSuchElementException if there is no frame in time
+	 * @throws InterruptedException   if the thread is interrupted while waiting
+	 */
+	private String[] nextFrame() throws NoSuchElementException, InterruptedException {
+		return nextFrame(cable);
+	}
+
+	private static String[] nextFrame(Line<String[]> line) throws NoSuchElementException, InterruptedException {
+		if (line instanceof ConcurrentLine) {
+			return ((ConcurrentLine<String[]>) line).receive(RECEIVE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		}
+		return line.receive();
 	}
 }
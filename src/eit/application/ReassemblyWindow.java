@@ -0,0 +1,183 @@
+package eit.application;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class keeps track of the segments of a transfer which arrive in any
+ * order<br>
+ * every segment has a sequence number from 0 to count-1. the window starts at
+ * the first segment which is missing and has a fixed size, so the memory does
+ * not depend on the length of the file: one bit for every sequence number in
+ * the window. a segment is accepted once, a segment which is already accepted
+ * or which lies before the window is a duplicate. a segment after the window
+ * is rejected or, with a timeout, waits until the window has moved far enough,
+ * so several threads which receive on several lines cannot run too far ahead
+ * of each other.<br>
+ * the window only decides which segments are new, the caller stores them, for
+ * example at their place in the file.
+ *
+ * @author Hamed Nakhei
+ */
+public class ReassemblyWindow {
+
+	/**
+	 * the number of sequence numbers in the window of the standard constructor
+	 */
+	public static final int DEFAULT_SIZE = 1 << 16;
+	/**
+	 * the largest number of sequence numbers in a window
+	 */
+	public static final int MAX_SIZE = 1 << 30;
+
+	private static final int BITS_PER_WORD = Long.SIZE;
+
+	private final long count;
+	private final int size;
+	// the bit of a sequence number is at sequence modulo size
+	private final long[] words;
+	// the first sequence number which is not accepted yet
+	private long base = 0;
+	private long accepted = 0;
+	private long duplicates = 0;
+
+	/**
+	 * is the standard constructor
+	 *
+	 * @param count the number of segments of the transfer
+	 */
+	public ReassemblyWindow(long count) {
+		this(count, DEFAULT_SIZE);
+	}
+
+	/**
+	 * creates a window with a given size
+	 *
+	 * @param count the number of segments of the transfer
+	 * @param size  the number of sequence numbers in the window, it is rounded up
+	 *              to a multiple of 64, at most MAX_SIZE
+	 */
+	public ReassemblyWindow(long count, int size) {
+		if (count < 0 || size < 1 || size > MAX_SIZE) {
+			throw new IllegalArgumentException("Wrong count or size!!!");
+		}
+		this.count = count;
+		this.words = new long[(size + BITS_PER_WORD - 1) / BITS_PER_WORD];
+		this.size = words.length * BITS_PER_WORD;
+	}
+
+	/**
+	 * accepts a segment which lies in the window
+	 *
+	 * @param sequence the sequence number of the segment
+	 * @return true if the segment is new, false if it is a duplicate
+	 * @throws IOException if the sequence number is wrong or after the window
+	 */
+	public synchronized boolean accept(long sequence) throws IOException {
+		check(sequence);
+		if (sequence - base >= size) {
+			throw new IOException("Segment " + sequence + " is out of the window!!!");
+		}
+		return mark(sequence);
+	}
+
+	/**
+	 * accepts a segment, a segment after the window waits until the segments
+	 * before it are accepted
+	 *
+	 * @param sequence the sequence number of the segment
+	 * @param timeout  how long the segment waits
+	 * @param unit     the unit of the timeout
+	 * @return true if the segment is new, false if it is a duplicate
+	 * @throws IOException          if the sequence number is wrong or still after
+	 *                              the window after the timeout
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public synchronized boolean accept(long sequence, long timeout, TimeUnit unit)
+			throws IOException, InterruptedException {
+		check(sequence);
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (sequence - base >= size) {
+			long left = deadline - System.nanoTime();
+			if (left <= 0) {
+				throw new IOException("Segment " + sequence + " is out of the window!!!");
+			}
+			TimeUnit.NANOSECONDS.timedWait(this, left);
+		}
+		return mark(sequence);
+	}
+
+	private void check(long sequence) throws IOException {
+		if (sequence < 0 || sequence >= count) {
+			throw new IOException("Wrong segment " + sequence + "!!!");
+		}
+	}
+
+	private boolean mark(long sequence) {
+		if (sequence < base || isMarked(sequence)) {
+			duplicates++;
+			return false;
+		}
+		int bit = (int) (sequence % size);
+		words[bit / BITS_PER_WORD] |= 1L << bit;
+		accepted++;
+		if (sequence == base) {
+			// the window moves to the next missing segment and frees the bits behind it
+			while (base < count && isMarked(base)) {
+				bit = (int) (base % size);
+				words[bit / BITS_PER_WORD] &= ~(1L << bit);
+				base++;
+			}
+			notifyAll();
+		}
+		return true;
+	}
+
+	private boolean isMarked(long sequence) {
+		int bit = (int) (sequence % size);
+		return (words[bit / BITS_PER_WORD] & (1L << bit)) != 0;
+	}
+
+	/**
+	 * @return true if every segment is accepted
+	 */
+	public synchronized boolean isComplete() {
+		return base == count;
+	}
+
+	/**
+	 * @return the sequence number of the first missing segment, the start of the
+	 *         window
+	 */
+	public synchronized long getBase() {
+		return base;
+	}
+
+	/**
+	 * @return the number of accepted segments
+	 */
+	public synchronized long getAccepted() {
+		return accepted;
+	}
+
+	/**
+	 * @return the number of segments which arrived more than once
+	 */
+	public synchronized long getDuplicates() {
+		return duplicates;
+	}
+
+	/**
+	 * @return the number of segments of the transfer
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the number of sequence numbers in the window
+	 */
+	public int getSize() {
+		return size;
+	}
+}
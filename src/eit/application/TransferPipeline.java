@@ -0,0 +1,356 @@
+package eit.application;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class runs a transfer in three stages at the same time<br>
+ * the stages are connected by bounded queues:
+ * <li>the source produces the items, for example it reads the segments of the
+ * file or receives the frames from the line</li>
+ * <li>the codec converts every item, for example it encodes or decodes the
+ * frames with 8B6T coding</li>
+ * <li>the sink consumes the items, for example it transmits the frames on the
+ * line or writes the segments to the file</li>
+ * every stage runs in its own number of threads, so the disk, the coding on
+ * the cores and the line work at the same time. a full queue stops the stage
+ * before it, so only a few items are in memory. the items can change their
+ * order if a stage has more than one thread.<br>
+ * the statistics of every stage show how much of its time it works, waits for
+ * input or waits for room in the next queue, and how full its input queue is.
+ * the stage with the highest occupancy limits the throughput.
+ *
+ * @author Hamed Nakhei
+ */
+public class TransferPipeline {
+
+	/**
+	 * the number of items in a queue of the standard constructor
+	 */
+	public static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+	private static final String[] NAMES = { "source", "codec", "sink" };
+	private static final int STAGES = 3;
+	// the item which tells the next stage that no more items follow
+	private static final Object END = new Object();
+
+	/**
+	 * produces the items of the first stage, several threads can call it at the
+	 * same time
+	 *
+	 * @param <T> the type of the items
+	 */
+	@FunctionalInterface
+	public interface Source<T> {
+		/**
+		 * @return the next item or null if there are no more items
+		 * @throws Exception if the item cannot be produced
+		 */
+		T next() throws Exception;
+	}
+
+	/**
+	 * converts the items of the second stage, several threads can call it at the
+	 * same time
+	 *
+	 * @param <I> the type of the items from the source
+	 * @param <O> the type of the items for the sink
+	 */
+	@FunctionalInterface
+	public interface Codec<I, O> {
+		/**
+		 * @param item the item from the source
+		 * @return the item for the sink
+		 * @throws Exception if the item cannot be converted
+		 */
+		O apply(I item) throws Exception;
+	}
+
+	/**
+	 * consumes the items of the last stage, several threads can call it at the
+	 * same time
+	 *
+	 * @param <T> the type of the items
+	 */
+	@FunctionalInterface
+	public interface Sink<T> {
+		/**
+		 * @param item the item from the codec
+		 * @throws Exception if the item cannot be consumed
+		 */
+		void accept(T item) throws Exception;
+	}
+
+	/**
+	 * the values of one stage after a run
+	 */
+	public static final class Statistics {
+		/** the name of the stage */
+		public final String name;
+		/** the number of threads of the stage */
+		public final int threads;
+		/** the number of items which the stage has handled */
+		public final long items;
+		/** the time of all threads in the work of the stage in nanoseconds */
+		public final long busyNanos;
+		/** the time of all threads waiting for an item in nanoseconds */
+		public final long starvedNanos;
+		/** the time of all threads waiting for room in the next queue in nanoseconds */
+		public final long blockedNanos;
+		/** the time of the whole run in nanoseconds */
+		public final long wallNanos;
+		/** the mean number of items in the input queue, 0 for the source */
+		public final double meanQueueDepth;
+		/** the largest number of items in the input queue, 0 for the source */
+		public final long peakQueueDepth;
+		/** the capacity of the input queue, 0 for the source */
+		public final int queueCapacity;
+
+		Statistics(String name, int threads, long items, long busyNanos, long starvedNanos, long blockedNanos,
+				long wallNanos, double meanQueueDepth, long peakQueueDepth, int queueCapacity) {
+			this.name = name;
+			this.threads = threads;
+			this.items = items;
+			this.busyNanos = busyNanos;
+			this.starvedNanos = starvedNanos;
+			this.blockedNanos = blockedNanos;
+			this.wallNanos = wallNanos;
+			this.meanQueueDepth = meanQueueDepth;
+			this.peakQueueDepth = peakQueueDepth;
+			this.queueCapacity = queueCapacity;
+		}
+
+		/**
+		 * @return the part of the time of all threads in which the stage works,
+		 *         between 0 and 1
+		 */
+		public double occupancy() {
+			return wallNanos == 0 ? 0 : Math.min((double) busyNanos / wallNanos / threads, 1);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: %d threads, %d items, occupancy %.0f%%, starved %.3f s, blocked %.3f s, "
+					+ "queue mean %.1f peak %d of %d", name, threads, items, occupancy() * 100, starvedNanos / 1e9,
+					blockedNanos / 1e9, meanQueueDepth, peakQueueDepth, queueCapacity);
+		}
+	}
+
+	/**
+	 * the counters of one stage during a run
+	 */
+	private static class Counters {
+		private final LongAdder items = new LongAdder();
+		private final LongAdder busyNanos = new LongAdder();
+		private final LongAdder starvedNanos = new LongAdder();
+		private final LongAdder blockedNanos = new LongAdder();
+		private final LongAdder depthSum = new LongAdder();
+		private final LongAdder depthSamples = new LongAdder();
+		private final LongAccumulator peakDepth = new LongAccumulator(Math::max, 0);
+	}
+
+	private final int[] threads;
+	private final int queueCapacity;
+	private List<Statistics> statistics = Collections.emptyList();
+
+	/**
+	 * is the standard constructor
+	 *
+	 * @param sourceThreads the number of threads of the source
+	 * @param codecThreads  the number of threads of the codec
+	 * @param sinkThreads   the number of threads of the sink
+	 */
+	public TransferPipeline(int sourceThreads, int codecThreads, int sinkThreads) {
+		this(sourceThreads, codecThreads, sinkThreads, DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * creates a pipeline with a given size of the queues
+	 *
+	 * @param sourceThreads the number of threads of the source
+	 * @param codecThreads  the number of threads of the codec
+	 * @param sinkThreads   the number of threads of the sink
+	 * @param queueCapacity the number of items in every queue
+	 */
+	public TransferPipeline(int sourceThreads, int codecThreads, int sinkThreads, int queueCapacity) {
+		if (sourceThreads < 1 || codecThreads < 1 || sinkThreads < 1) {
+			throw new IllegalArgumentException("Every stage needs at least 1 thread!!!");
+		}
+		if (queueCapacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1!!!");
+		}
+		this.threads = new int[] { sourceThreads, codecThreads, sinkThreads };
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * runs the three stages until the source has no more items and all items
+	 * have passed the sink
+	 *
+	 * @param <A>    the type of the items from the source
+	 * @param <B>    the type of the items for the sink
+	 * @param source the first stage
+	 * @param codec  the second stage
+	 * @param sink   the last stage
+	 * @throws IOException if a stage fails, all stages are stopped then
+	 */
+	public <A, B> void run(Source<A> source, Codec<A, B> codec, Sink<B> sink) throws IOException {
+		BlockingQueue<Object> toCodec = new ArrayBlockingQueue<Object>(queueCapacity);
+		BlockingQueue<Object> toSink = new ArrayBlockingQueue<Object>(queueCapacity);
+		Counters[] counters = { new Counters(), new Counters(), new Counters() };
+		// the last thread of a stage which finishes tells all threads of the next stage
+		AtomicInteger sources = new AtomicInteger(threads[0]);
+		AtomicInteger codecs = new AtomicInteger(threads[1]);
+		List<Callable<Void>> workers = new ArrayList<Callable<Void>>();
+		for (int i = 0; i < threads[0]; i++) {
+			workers.add(() -> {
+				while (true) {
+					long start = System.nanoTime();
+					A item = source.next();
+					counters[0].busyNanos.add(System.nanoTime() - start);
+					if (item == null) {
+						break;
+					}
+					counters[0].items.increment();
+					put(toCodec, item, counters[0], counters[1]);
+				}
+				if (sources.decrementAndGet() == 0) {
+					for (int j = 0; j < threads[1]; j++) {
+						toCodec.put(END);
+					}
+				}
+				return null;
+			});
+		}
+		for (int i = 0; i < threads[1]; i++) {
+			workers.add(() -> {
+				Object item;
+				while ((item = take(toCodec, counters[1])) != END) {
+					long start = System.nanoTime();
+					@SuppressWarnings("unchecked")
+					B result = codec.apply((A) item);
+					counters[1].busyNanos.add(System.nanoTime() - start);
+					counters[1].items.increment();
+					put(toSink, result, counters[1], counters[2]);
+				}
+				if (codecs.decrementAndGet() == 0) {
+					for (int j = 0; j < threads[2]; j++) {
+						toSink.put(END);
+					}
+				}
+				return null;
+			});
+		}
+		for (int i = 0; i < threads[2]; i++) {
+			workers.add(() -> {
+				Object item;
+				while ((item = take(toSink, counters[2])) != END) {
+					long start = System.nanoTime();
+					@SuppressWarnings("unchecked")
+					B element = (B) item;
+					sink.accept(element);
+					counters[2].busyNanos.add(System.nanoTime() - start);
+					counters[2].items.increment();
+				}
+				return null;
+			});
+		}
+		long start = System.nanoTime();
+		try {
+			execute(workers);
+		} finally {
+			long wallNanos = System.nanoTime() - start;
+			List<Statistics> result = new ArrayList<Statistics>();
+			for (int i = 0; i < STAGES; i++) {
+				long samples = counters[i].depthSamples.sum();
+				result.add(new Statistics(NAMES[i], threads[i], counters[i].items.sum(), counters[i].busyNanos.sum(),
+						counters[i].starvedNanos.sum(), counters[i].blockedNanos.sum(), wallNanos,
+						samples == 0 ? 0 : (double) counters[i].depthSum.sum() / samples, counters[i].peakDepth.get(),
+						i == 0 ? 0 : queueCapacity));
+			}
+			statistics = Collections.unmodifiableList(result);
+		}
+	}
+
+	/**
+	 * puts an item in the next queue and samples its depth
+	 */
+	private static void put(BlockingQueue<Object> queue, Object item, Counters stage, Counters next)
+			throws InterruptedException {
+		long start = System.nanoTime();
+		queue.put(item);
+		stage.blockedNanos.add(System.nanoTime() - start);
+		int depth = queue.size();
+		next.depthSum.add(depth);
+		next.depthSamples.increment();
+		next.peakDepth.accumulate(depth);
+	}
+
+	private static Object take(BlockingQueue<Object> queue, Counters stage) throws InterruptedException {
+		long start = System.nanoTime();
+		Object item = queue.take();
+		stage.starvedNanos.add(System.nanoTime() - start);
+		return item;
+	}
+
+	/**
+	 * runs every worker in its own thread, the first failure stops all of them
+	 */
+	private static void execute(List<Callable<Void>> workers) throws IOException {
+		ExecutorService pool = Executors.newFixedThreadPool(workers.size());
+		try {
+			CompletionService<Void> done = new ExecutorCompletionService<Void>(pool);
+			for (Callable<Void> worker : workers) {
+				done.submit(worker);
+			}
+			for (int i = 0; i < workers.size(); i++) {
+				done.take().get();
+			}
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return the statistics of the source, the codec and the sink of the last
+	 *         run, empty before the first run
+	 */
+	public List<Statistics> getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * @return the statistics of the stage with the highest occupancy in the last
+	 *         run or null before the first run
+	 */
+	public Statistics getBottleneck() {
+		Statistics bottleneck = null;
+		for (Statistics stage : statistics) {
+			if (bottleneck == null || stage.occupancy() > bottleneck.occupancy()) {
+				bottleneck = stage;
+			}
+		}
+		return bottleneck;
+	}
+}
@@ -0,0 +1,117 @@
+package eit.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import edu.fra.uas.oop.Terminal;
+import eit.application.EasyFileTransferProtocol;
+import eit.application.EasyFileTransferProtocol.Striping;
+import eit.linecode.DataDecoder8B6T;
+import eit.linecode.DataEncoder8B6T;
+import eit.medium.SocketCable;
+
+/**
+ * This class measures how an aggregated transfer scales with the number of
+ * lines<br>
+ * one file is transmitted with
+ * {@link EasyFileTransferProtocol#transmitFile(File, List, Striping)} over 1 up
+ * to MAX_LINES loopback TCP connections and received in the same process.
+ * every line encodes and decodes in its own thread, so the speedup also
+ * depends on the number of cores. every number of lines first runs
+ * WARMUP_ROUNDS transfers which are not measured, so the first one does not pay
+ * for the JIT compiler and the class loading, and then the mean time of
+ * MEASURED_ROUNDS transfers is taken.<br>
+ * usage: AggregationBenchmark [file size in MB] [ROUND_ROBIN|ADAPTIVE]
+ *
+ * @author Hamed Nakhei
+ */
+public class AggregationBenchmark {
+	private static final int BYTES_PER_MB = 1024 * 1024;
+	private static final int DEFAULT_FILE_SIZE_IN_MB = 8;
+	private static final int MAX_LINES = 4;
+	private static final int WARMUP_ROUNDS = 2;
+	private static final int MEASURED_ROUNDS = 3;
+	private static final double NANOS_PER_SECOND = 1e9;
+
+	/**
+	 * runs the benchmark and prints one line per number of lines
+	 *
+	 * @param args file size in MB and striping, both optional
+	 * @throws Exception if a transfer fails
+	 */
+	public static void main(String[] args) throws Exception {
+		int size = (args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_FILE_SIZE_IN_MB) * BYTES_PER_MB;
+		Striping striping = args.length > 1 ? Striping.valueOf(args[1]) : Striping.ADAPTIVE;
+		byte[] data = new byte[size];
+		new Random(0).nextBytes(data);
+		File file = File.createTempFile("aggregation", ".bin");
+		Files.write(file.toPath(), data);
+		try {
+			double single = 0;
+			for (int lines = 1; lines <= MAX_LINES; lines++) {
+				double seconds = transferSeconds(file, data, lines, striping);
+				if (lines == 1) {
+					single = seconds;
+				}
+				Terminal.printLine(String.format("%d lines: %.3f s, %.1f MB/s, speedup %.2f", lines, seconds,
+						size / seconds / BYTES_PER_MB, single / seconds));
+			}
+		} finally {
+			Files.deleteIfExists(file.toPath());
+		}
+	}
+
+	private static double transferSeconds(File file, byte[] data, int count, Striping striping) throws Exception {
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			transfer(file, data, count, striping);
+		}
+		double seconds = 0;
+		for (int i = 0; i < MEASURED_ROUNDS; i++) {
+			seconds += transfer(file, data, count, striping);
+		}
+		return seconds / MEASURED_ROUNDS;
+	}
+
+	private static double transfer(File file, byte[] data, int count, Striping striping) throws Exception {
+		List<SocketCable> senders = new ArrayList<SocketCable>();
+		List<SocketCable> receivers = new ArrayList<SocketCable>();
+		try (ServerSocketChannel server = SocketCable
+				.listen(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+			for (int i = 0; i < count; i++) {
+				senders.add(SocketCable.connect(server.getLocalAddress()));
+				receivers.add(SocketCable.accept(server));
+			}
+		}
+		EasyFileTransferProtocol sender = new EasyFileTransferProtocol(new DataEncoder8B6T(),
+				new DataDecoder8B6T(), null);
+		EasyFileTransferProtocol receiver = new EasyFileTransferProtocol(new DataEncoder8B6T(),
+				new DataDecoder8B6T(), null);
+		long start = System.nanoTime();
+		Thread transmit = new Thread(() -> sender.transmitFile(file, senders, striping));
+		transmit.start();
+		File received = receiver.receiveFile(receivers);
+		transmit.join();
+		double seconds = (System.nanoTime() - start) / NANOS_PER_SECOND;
+		try {
+			if (received == null || !Arrays.equals(Files.readAllBytes(received.toPath()), data)) {
+				throw new IOException("File is not received correctly!!!");
+			}
+		} finally {
+			if (received != null) {
+				Files.deleteIfExists(received.toPath());
+			}
+			for (int i = 0; i < count; i++) {
+				senders.get(i).close();
+				receivers.get(i).close();
+			}
+		}
+		return seconds;
+	}
+}
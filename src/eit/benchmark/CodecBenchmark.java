@@ -0,0 +1,172 @@
+package eit.benchmark;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import edu.fra.uas.oop.Terminal;
+import eit.linecode.ControlFrame;
+import eit.linecode.DataDecoder8B6T;
+import eit.linecode.DataEncoder8B6T;
+import eit.linecode.Functions;
+
+/**
+ * This class is the benchmark suite of the eit.linecode codec<br>
+ * every benchmark is run for payload sizes from 16 bytes to 16 MB and for
+ * random data, data with only zeros and text. the following methods are
+ * measured:
+ * <li>DataEncoder8B6T.encode</li>
+ * <li>DataDecoder8B6T.decode</li>
+ * <li>ControlFrame.getBytes and ControlFrame.toBytes</li>
+ * <li>Functions.cumulativeWeight, Functions.inverted and
+ * Functions.checkEndOfData on the first encoded data stream</li>
+ * for every benchmark the throughput in operations and payload MB per second
+ * is printed. every measurement first warms up for WARMUP_NANOS and then runs
+ * for MEASUREMENT_NANOS, but at least MIN_ITERATIONS times. this is a quick
+ * check without dependencies, the same benchmarks with the allocation per
+ * operation are in {@code LineCodeBenchmark} and {@code ControlFrameBenchmark}
+ * of the JMH sources, see pom.xml.<br>
+ * usage: CodecBenchmark [part of the benchmark name] [max size in bytes]
+ *
+ * @author Hamed Nakhei
+ */
+public class CodecBenchmark {
+	private static final int MIN_SIZE = 16;
+	private static final int MAX_SIZE = 16 * 1024 * 1024;
+	private static final int SIZE_FACTOR = 16;
+	private static final long WARMUP_NANOS = 500_000_000L;
+	private static final long MEASUREMENT_NANOS = 1_000_000_000L;
+	private static final int MIN_ITERATIONS = 3;
+	private static final double NANOS_PER_SECOND = 1e9;
+	private static final double BYTES_PER_MB = 1024 * 1024;
+	private static final String TEXT = "The Easy File Transfer Protocol encodes every file in 8B6T. ";
+	private static final String[] KINDS = { "random", "zero", "text" };
+
+	/**
+	 * one operation which is measured
+	 */
+	private interface Operation {
+		/**
+		 * runs the operation once
+		 *
+		 * @return any result, so the operation cannot be removed by the compiler
+		 * @throws Exception if the operation fails
+		 */
+		Object run() throws Exception;
+	}
+
+	// the results are collected here, so the operations cannot be removed
+	private static volatile int blackhole;
+
+	/**
+	 * runs all benchmarks, or only the benchmarks whose name contains the first
+	 * argument
+	 *
+	 * @param args part of the benchmark name and max size in bytes, both optional
+	 * @throws Exception if a benchmark fails
+	 */
+	public static void main(String[] args) throws Exception {
+		String filter = args.length > 0 ? args[0] : "";
+		int maxSize = args.length > 1 ? Integer.parseInt(args[1]) : MAX_SIZE;
+		DataEncoder8B6T encoder = new DataEncoder8B6T();
+		DataDecoder8B6T decoder = new DataDecoder8B6T();
+		Functions functions = new Functions();
+		ControlFrame controlFrame = new ControlFrame();
+
+		Terminal.printLine(String.format("%-28s %-7s %10s %14s %12s", "benchmark", "data", "size", "ops/s", "MB/s"));
+		for (int size = MIN_SIZE; size <= maxSize; size *= SIZE_FACTOR) {
+			for (String kind : KINDS) {
+				byte[] data = payload(kind, size);
+				String[] encoded = encoder.encode(data);
+				if (matches(filter, "DataEncoder8B6T.encode")) {
+					measure("DataEncoder8B6T.encode", kind, size, () -> encoder.encode(data));
+				}
+				if (matches(filter, "DataDecoder8B6T.decode")) {
+					measure("DataDecoder8B6T.decode", kind, size, () -> decoder.decode(encoded));
+				}
+				if (matches(filter, "Functions.cumulativeWeight")) {
+					measure("Functions.cumulativeWeight", kind, size, () -> functions.cumulativeWeight(encoded[0]));
+				}
+				if (matches(filter, "Functions.inverted")) {
+					measure("Functions.inverted", kind, size, () -> Functions.inverted(encoded[0]));
+				}
+				if (matches(filter, "Functions.checkEndOfData")) {
+					measure("Functions.checkEndOfData", kind, size, () -> functions.checkEndOfData(encoded[0], 1));
+				}
+			}
+			// the control frame only depends on the name and the length of the file
+			if (matches(filter, "ControlFrame.getBytes")) {
+				File file = File.createTempFile("bench", ".bin");
+				try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+					raf.setLength(size);
+				}
+				measure("ControlFrame.getBytes", "-", size, () -> controlFrame.getBytes(file));
+				if (!file.delete()) {
+					file.deleteOnExit();
+				}
+			}
+			if (matches(filter, "ControlFrame.toBytes")) {
+				long length = size;
+				measure("ControlFrame.toBytes", "-", size,
+						() -> new ControlFrame("bench.bin", length, ControlFrame.V1_FRAME_SIZE, 0).toBytes());
+			}
+		}
+	}
+
+	private static boolean matches(String filter, String name) {
+		return name.contains(filter);
+	}
+
+	/**
+	 * creates the payload of a benchmark, the JMH benchmarks use it too
+	 *
+	 * @param kind random, zero or text
+	 * @param size the number of bytes
+	 * @return the payload
+	 */
+	static byte[] payload(String kind, int size) {
+		byte[] data = new byte[size];
+		if (kind.equals("random")) {
+			new Random(size).nextBytes(data);
+		} else if (kind.equals("text")) {
+			byte[] text = TEXT.getBytes(StandardCharsets.US_ASCII);
+			for (int i = 0; i < size; i++) {
+				data[i] = text[i % text.length];
+			}
+		} else {
+			Arrays.fill(data, (byte) 0);
+		}
+		return data;
+	}
+
+	/**
+	 * measures one operation and prints the result
+	 *
+	 * @param name      the name of the benchmark
+	 * @param kind      the kind of the payload
+	 * @param size      the size of the payload in bytes
+	 * @param operation the operation which is measured
+	 * @throws Exception if the operation fails
+	 */
+	private static void measure(String name, String kind, int size, Operation operation) throws Exception {
+		run(operation, WARMUP_NANOS);
+		long start = System.nanoTime();
+		long iterations = run(operation, MEASUREMENT_NANOS);
+		long nanos = System.nanoTime() - start;
+
+		double opsPerSecond = iterations * NANOS_PER_SECOND / nanos;
+		Terminal.printLine(String.format("%-28s %-7s %10d %14.1f %12.2f", name, kind, size, opsPerSecond,
+				opsPerSecond * size / BYTES_PER_MB));
+	}
+
+	private static long run(Operation operation, long nanos) throws Exception {
+		long end = System.nanoTime() + nanos;
+		long iterations = 0;
+		while (iterations < MIN_ITERATIONS || System.nanoTime() < end) {
+			blackhole += System.identityHashCode(operation.run());
+			iterations++;
+		}
+		return iterations;
+	}
+}
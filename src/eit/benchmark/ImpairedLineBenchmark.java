@@ -0,0 +1,89 @@
+package eit.benchmark;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import edu.fra.uas.oop.Terminal;
+import eit.linecode.DataDecoder8B6T;
+import eit.linecode.DataEncoder8B6T;
+import eit.medium.Cable;
+import eit.medium.ImpairedLine;
+
+/**
+ * This class measures the 8B6T frames on simulated bad links<br>
+ * the same frames of FRAME_SIZE bytes are sent over an {@link ImpairedLine}
+ * with different impairments and decoded by the receiver. for every link the
+ * benchmark prints how many frames are decoded and which exceptions the
+ * decoder throws, the virtual wire time, the goodput in decoded bytes per
+ * virtual second and the real time of the decoder. the seed makes every run
+ * the same.<br>
+ * usage: ImpairedLineBenchmark [number of frames] [seed]
+ *
+ * @author Hamed Nakhei
+ */
+public class ImpairedLineBenchmark {
+	private static final int FRAME_SIZE = 2048;
+	private static final int DEFAULT_FRAMES = 2000;
+	private static final double LATENCY = 0.005;
+	// 100 Mbit/s Ethernet with 8B6T sends 25 million symbols per second per pair
+	private static final double BANDWIDTH = 25e6;
+	private static final double NANOS_PER_SECOND = 1e9;
+
+	/**
+	 * runs the benchmark for every link
+	 *
+	 * @param args number of frames and seed, both optional
+	 */
+	public static void main(String[] args) {
+		int frames = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_FRAMES;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+
+		String[][] encoded = new String[frames][];
+		Random random = new Random(seed);
+		DataEncoder8B6T encoder = new DataEncoder8B6T();
+		for (int i = 0; i < frames; i++) {
+			byte[] data = new byte[FRAME_SIZE];
+			random.nextBytes(data);
+			encoded[i] = encoder.encode(data);
+		}
+
+		run("perfect", new ImpairedLine(new Cable<String[]>(), seed), encoded);
+		run("latency", link(seed), encoded);
+		run("flip 1e-6", link(seed).setFlipRate(1e-6), encoded);
+		run("flip 1e-5", link(seed).setFlipRate(1e-5), encoded);
+		run("flip 1e-4", link(seed).setFlipRate(1e-4), encoded);
+		run("drop 1%", link(seed).setDropRate(0.01), encoded);
+		run("duplicate 1%", link(seed).setDuplicateRate(0.01), encoded);
+		run("reorder 1%", link(seed).setReordering(0.01, LATENCY), encoded);
+		run("all", link(seed).setFlipRate(1e-5).setDropRate(0.01).setDuplicateRate(0.01).setReordering(0.01, LATENCY),
+				encoded);
+	}
+
+	private static ImpairedLine link(long seed) {
+		return new ImpairedLine(new Cable<String[]>(), seed).setLatency(LATENCY).setBandwidth(BANDWIDTH);
+	}
+
+	private static void run(String name, ImpairedLine line, String[][] encoded) {
+		DataDecoder8B6T decoder = new DataDecoder8B6T();
+		Map<String, Integer> errors = new TreeMap<String, Integer>();
+		long decoded = 0;
+		long bytes = 0;
+		for (String[] frame : encoded) {
+			line.transmit(frame);
+		}
+		long start = System.nanoTime();
+		while (line.hasData()) {
+			try {
+				bytes += decoder.decode(line.receive()).length;
+				decoded++;
+			} catch (RuntimeException e) {
+				errors.merge(e.getClass().getSimpleName(), 1, Integer::sum);
+			}
+		}
+		double decodeSeconds = (System.nanoTime() - start) / NANOS_PER_SECOND;
+		double goodput = line.getClock() == 0 ? 0 : bytes / line.getClock();
+		Terminal.printLine(String.format("%-14s decoded %d of %d, errors %s, wire %.4f s, clock %.4f s, "
+				+ "goodput %.0f B/s, decoder %.3f s", name, decoded, line.getFramesDelivered(), errors,
+				line.getWireSeconds(), line.getClock(), goodput, decodeSeconds));
+	}
+}
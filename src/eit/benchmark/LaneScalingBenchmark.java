@@ -0,0 +1,81 @@
+package eit.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import edu.fra.uas.oop.Terminal;
+import eit.linecode.DataDecoder8B6T;
+import eit.linecode.DataEncoder8B6T;
+
+/**
+ * This class measures how the parallel mode of the 8B6T encoder and decoder
+ * scales with the number of cores<br>
+ * one large frame is encoded and decoded with pools of 1 up to all available
+ * cores. the data streams are split into chunks, so more than three cores can
+ * be used. the speedup is relative to the sequential encoder and decoder.<br>
+ * usage: LaneScalingBenchmark [frame size in MB] [chunk size in code groups]
+ *
+ * @author Hamed Nakhei
+ */
+public class LaneScalingBenchmark {
+	private static final int BYTES_PER_MB = 1024 * 1024;
+	private static final int DEFAULT_FRAME_SIZE_IN_MB = 32;
+	private static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+	private static final int WARMUP_ROUNDS = 3;
+	private static final int MEASURED_ROUNDS = 5;
+	private static final double NANOS_PER_SECOND = 1e9;
+
+	/**
+	 * runs the benchmark and prints one line per number of cores
+	 *
+	 * @param args frame size in MB and chunk size in code groups, both optional
+	 */
+	public static void main(String[] args) {
+		int frameSize = (args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_FRAME_SIZE_IN_MB) * BYTES_PER_MB;
+		int chunkSize = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CHUNK_SIZE;
+
+		byte[] data = new byte[frameSize];
+		new Random(0).nextBytes(data);
+		String[] encoded = new DataEncoder8B6T().encode(data);
+
+		double sequentialEncode = encodeSeconds(new DataEncoder8B6T(), data);
+		double sequentialDecode = decodeSeconds(new DataDecoder8B6T(), encoded);
+		Terminal.printLine("frame: " + frameSize + " bytes, chunk: " + chunkSize + " code groups");
+		Terminal.printLine("sequential: encode " + format(sequentialEncode) + " s, decode "
+				+ format(sequentialDecode) + " s");
+
+		for (int cores = 1; cores <= Runtime.getRuntime().availableProcessors(); cores++) {
+			ForkJoinPool pool = new ForkJoinPool(cores);
+			double encode = encodeSeconds(new DataEncoder8B6T(pool, 0, chunkSize), data);
+			double decode = decodeSeconds(new DataDecoder8B6T(pool, 0, chunkSize), encoded);
+			pool.shutdown();
+			Terminal.printLine("cores " + cores + ": encode speedup " + format(sequentialEncode / encode)
+					+ ", decode speedup " + format(sequentialDecode / decode));
+		}
+	}
+
+	private static double encodeSeconds(DataEncoder8B6T encoder, byte[] data) {
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			encoder.encode(data);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < MEASURED_ROUNDS; i++) {
+			encoder.encode(data);
+		}
+		return (System.nanoTime() - start) / NANOS_PER_SECOND / MEASURED_ROUNDS;
+	}
+
+	private static double decodeSeconds(DataDecoder8B6T decoder, String[] encoded) {
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			decoder.decode(encoded);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < MEASURED_ROUNDS; i++) {
+			decoder.decode(encoded);
+		}
+		return (System.nanoTime() - start) / NANOS_PER_SECOND / MEASURED_ROUNDS;
+	}
+
+	private static String format(double value) {
+		return String.format("%.3f", value);
+	}
+}
@@ -0,0 +1,128 @@
+package eit.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import edu.fra.uas.oop.Terminal;
+import eit.application.EasyFileTransferProtocol;
+import eit.application.TransferPipeline;
+import eit.linecode.DataDecoder8B6T;
+import eit.linecode.DataEncoder8B6T;
+import eit.medium.RingCable;
+
+/**
+ * This class compares the sequential transfer with the pipelined transfer<br>
+ * one file is transmitted over a bounded {@link RingCable} while another
+ * thread receives it, first with {@link EasyFileTransferProtocol#transmitFile(File)}
+ * and {@link EasyFileTransferProtocol#receiveFile()}, then with a
+ * {@link TransferPipeline} on both sides with 1 up to the number of cores
+ * codec threads. the source and the sink of the pipelines have one thread,
+ * because the cable is read and written in order. the statistics of every
+ * stage are printed, the stage with the highest occupancy limits the
+ * throughput.<br>
+ * every transfer first runs WARMUP_ROUNDS times without measuring, so the
+ * sequential baseline does not pay for the JIT compiler and the class loading,
+ * and then the mean time of MEASURED_ROUNDS transfers is taken. the statistics
+ * are the ones of the last transfer.<br>
+ * usage: PipelineBenchmark [file size in MB]
+ *
+ * @author Hamed Nakhei
+ */
+public class PipelineBenchmark {
+	private static final int BYTES_PER_MB = 1024 * 1024;
+	private static final int DEFAULT_FILE_SIZE_IN_MB = 8;
+	private static final int WARMUP_ROUNDS = 2;
+	private static final int MEASURED_ROUNDS = 3;
+	private static final double NANOS_PER_SECOND = 1e9;
+
+	/**
+	 * runs the benchmark and prints the time and the stages of every transfer
+	 *
+	 * @param args file size in MB, optional
+	 * @throws Exception if a transfer fails
+	 */
+	public static void main(String[] args) throws Exception {
+		int size = (args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_FILE_SIZE_IN_MB) * BYTES_PER_MB;
+		byte[] data = new byte[size];
+		new Random(0).nextBytes(data);
+		File file = File.createTempFile("pipeline", ".bin");
+		Files.write(file.toPath(), data);
+		try {
+			double sequential = transferSeconds(file, data, null, null);
+			Terminal.printLine(String.format("sequential: %.3f s, %.1f MB/s", sequential,
+					size / sequential / BYTES_PER_MB));
+			int cores = Runtime.getRuntime().availableProcessors();
+			for (int codecs = 1; codecs <= Math.max(cores, 2); codecs++) {
+				TransferPipeline send = new TransferPipeline(1, codecs, 1);
+				TransferPipeline receive = new TransferPipeline(1, codecs, 1);
+				double seconds = transferSeconds(file, data, send, receive);
+				Terminal.printLine(String.format("pipelined, %d codec threads: %.3f s, %.1f MB/s, speedup %.2f",
+						codecs, seconds, size / seconds / BYTES_PER_MB, sequential / seconds));
+				print("send", send);
+				print("receive", receive);
+			}
+		} finally {
+			Files.deleteIfExists(file.toPath());
+		}
+	}
+
+	private static void print(String side, TransferPipeline pipeline) {
+		for (TransferPipeline.Statistics stage : pipeline.getStatistics()) {
+			Terminal.printLine("  " + side + " " + stage);
+		}
+		Terminal.printLine("  " + side + " is limited by the " + pipeline.getBottleneck().name);
+	}
+
+	private static double transferSeconds(File file, byte[] data, TransferPipeline send, TransferPipeline receive)
+			throws Exception {
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			transfer(file, data, send, receive);
+		}
+		double seconds = 0;
+		for (int i = 0; i < MEASURED_ROUNDS; i++) {
+			seconds += transfer(file, data, send, receive);
+		}
+		return seconds / MEASURED_ROUNDS;
+	}
+
+	/**
+	 * transmits the file in another thread and receives it
+	 *
+	 * @param send    the pipeline of the sender or null for the sequential transfer
+	 * @param receive the pipeline of the receiver or null for the sequential
+	 *                transfer
+	 * @return the seconds of the transfer
+	 */
+	private static double transfer(File file, byte[] data, TransferPipeline send, TransferPipeline receive)
+			throws Exception {
+		RingCable<String[]> cable = new RingCable<String[]>();
+		EasyFileTransferProtocol sender = new EasyFileTransferProtocol(new DataEncoder8B6T(),
+				new DataDecoder8B6T(), cable);
+		EasyFileTransferProtocol receiver = new EasyFileTransferProtocol(new DataEncoder8B6T(),
+				new DataDecoder8B6T(), cable);
+		long start = System.nanoTime();
+		Thread transmit = new Thread(() -> {
+			if (send == null) {
+				sender.transmitFile(file);
+			} else {
+				sender.transmitFile(file, send);
+			}
+		});
+		transmit.start();
+		File received = receive == null ? receiver.receiveFile() : receiver.receiveFile(receive);
+		transmit.join();
+		double seconds = (System.nanoTime() - start) / NANOS_PER_SECOND;
+		try {
+			if (received == null || !Arrays.equals(Files.readAllBytes(received.toPath()), data)) {
+				throw new IOException("File is not received correctly!!!");
+			}
+		} finally {
+			if (received != null) {
+				Files.deleteIfExists(received.toPath());
+			}
+		}
+		return seconds;
+	}
+}
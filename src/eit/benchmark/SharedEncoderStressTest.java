@@ -0,0 +1,136 @@
+package eit.benchmark;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import edu.fra.uas.oop.Terminal;
+import eit.linecode.DataEncoder8B6T;
+import eit.linecode.EncodeTable8B6T;
+import eit.linecode.TernaryBuffer;
+
+/**
+ * This class checks that one {@link DataEncoder8B6T} can be shared by many
+ * threads<br>
+ * first every payload is encoded in a single thread, these data streams are
+ * the expected result. then many threads start at the same time and encode
+ * the payloads in different order with one shared encoder, once with the
+ * sequential mode and once with the parallel mode, which splits the data
+ * streams into chunks. every call of encode, encodeToBuffers and encodeInto is
+ * compared with the expected data streams. the payloads have different
+ * lengths, so a DC balance bit which leaks from one call into another changes
+ * the result.<br>
+ * usage: SharedEncoderStressTest [number of threads] [rounds per thread]
+ *
+ * @author Hamed Nakhei
+ */
+public class SharedEncoderStressTest {
+	private static final int[] SIZES = { 0, 1, 2, 3, 16, 255, 2048, 100_000 };
+	private static final int MIN_THREADS = 16;
+	private static final int THREADS_PER_CORE = 4;
+	private static final int DEFAULT_ROUNDS = 200;
+	private static final int PARALLEL_THRESHOLD = 1024;
+	private static final int LANE_CHUNK_SIZE = 4096;
+	private static final int THREE_DATASTREAMS = 3;
+
+	/**
+	 * runs the check and prints the number of calls and wrong results
+	 *
+	 * @param args number of threads and rounds per thread, both optional
+	 * @throws Exception if a result of the shared encoder is wrong
+	 */
+	public static void main(String[] args) throws Exception {
+		int cores = Runtime.getRuntime().availableProcessors();
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(MIN_THREADS, cores * THREADS_PER_CORE);
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS;
+
+		byte[][] payloads = new byte[SIZES.length][];
+		String[][] expected = new String[SIZES.length][];
+		TernaryBuffer[][] expectedBuffers = new TernaryBuffer[SIZES.length][];
+		DataEncoder8B6T single = new DataEncoder8B6T();
+		for (int i = 0; i < SIZES.length; i++) {
+			payloads[i] = new byte[SIZES[i]];
+			new Random(i).nextBytes(payloads[i]);
+			expected[i] = single.encode(payloads[i]);
+			expectedBuffers[i] = single.encodeToBuffers(payloads[i]);
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(cores);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		DataEncoder8B6T sequential = new DataEncoder8B6T();
+		DataEncoder8B6T parallel = new DataEncoder8B6T(pool, PARALLEL_THRESHOLD, LANE_CHUNK_SIZE);
+		AtomicLong calls = new AtomicLong();
+		AtomicLong mismatches = new AtomicLong();
+		// all threads wait for each other, so they really encode at the same time
+		CountDownLatch start = new CountDownLatch(threads);
+		try {
+			List<Callable<Void>> workers = new ArrayList<Callable<Void>>();
+			for (int t = 0; t < threads; t++) {
+				int thread = t;
+				workers.add(() -> {
+					start.countDown();
+					start.await();
+					for (int round = 0; round < rounds; round++) {
+						int i = (thread + round) % SIZES.length;
+						check("encode", Arrays.equals(sequential.encode(payloads[i]), expected[i]), i, mismatches);
+						check("parallel encode", Arrays.equals(parallel.encode(payloads[i]), expected[i]), i,
+								mismatches);
+						check("encodeToBuffers",
+								Arrays.equals(sequential.encodeToBuffers(payloads[i]), expectedBuffers[i]), i,
+								mismatches);
+						check("encodeInto", Arrays.equals(encodeInto(sequential, payloads[i]), expected[i]), i,
+								mismatches);
+						calls.addAndGet(4);
+					}
+					return null;
+				});
+			}
+			for (Future<Void> result : executor.invokeAll(workers)) {
+				result.get();
+			}
+		} finally {
+			executor.shutdownNow();
+			pool.shutdownNow();
+		}
+		Terminal.printLine(String.format("%d threads, %d calls, %d wrong results", threads, calls.get(),
+				mismatches.get()));
+		if (mismatches.get() > 0) {
+			throw new IOException("Shared encoder gives wrong data streams!!!");
+		}
+	}
+
+	private static void check(String method, boolean correct, int payload, AtomicLong mismatches) {
+		if (!correct && mismatches.getAndIncrement() == 0) {
+			Terminal.printLine(method + " is wrong for " + SIZES[payload] + " bytes in "
+					+ Thread.currentThread().getName());
+		}
+	}
+
+	/**
+	 * encodes the payload into new CharBuffers
+	 *
+	 * @return the 3 data streams as String
+	 */
+	private static String[] encodeInto(DataEncoder8B6T encoder, byte[] payload) {
+		CharBuffer[] lanes = new CharBuffer[THREE_DATASTREAMS];
+		for (int i = 0; i < THREE_DATASTREAMS; i++) {
+			lanes[i] = CharBuffer.allocate(EncodeTable8B6T.streamLength(i + 1, payload.length));
+		}
+		encoder.encodeInto(ByteBuffer.wrap(payload), lanes);
+		String[] result = new String[THREE_DATASTREAMS];
+		for (int i = 0; i < THREE_DATASTREAMS; i++) {
+			result[i] = lanes[i].flip().toString();
+		}
+		return result;
+	}
+}
@@ -0,0 +1,156 @@
+package eit.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import edu.fra.uas.oop.Terminal;
+import eit.linecode.DataDecoder8B6T;
+import eit.linecode.DataEncoder8B6T;
+import eit.linecode.TernaryBuffer;
+import eit.medium.SocketCable;
+
+/**
+ * This class measures the throughput of a {@link SocketCable} between two
+ * processes on this host<br>
+ * the benchmark opens a server socket and starts a second JVM which connects
+ * and transmits encoded frames of FRAME_SIZE bytes. this process receives and
+ * decodes every frame, so the measured time contains the socket, the framing
+ * and the decoder, but not the encoder. no outside network is used. the unix
+ * mode needs Java 16 or newer.<br>
+ * usage: SocketCableBenchmark [tcp|unix] [amount in MB]
+ *
+ * @author Hamed Nakhei
+ */
+public class SocketCableBenchmark {
+	private static final int FRAME_SIZE = 2048;
+	private static final int BYTES_PER_MB = 1024 * 1024;
+	private static final int DEFAULT_AMOUNT_IN_MB = 64;
+	private static final long RECEIVE_TIMEOUT_SECONDS = 30;
+	private static final double NANOS_PER_SECOND = 1e9;
+
+	/**
+	 * runs the receiving side and starts the sending side, or runs the sending
+	 * side if the first argument is "send"
+	 *
+	 * @param args tcp or unix and the amount in MB, both optional
+	 * @throws Exception if the socket or the second process fails
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length > 0 && args[0].equals("send")) {
+			send(args[1], args[2], Integer.parseInt(args[3]));
+			return;
+		}
+		String kind = args.length > 0 ? args[0] : "tcp";
+		int amount = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_AMOUNT_IN_MB;
+		SocketAddress address;
+		String target;
+		Path socketFile = null;
+		if (kind.equals("unix")) {
+			socketFile = Files.createTempDirectory("cable").resolve("cable.sock");
+			address = unixAddress(socketFile);
+			target = socketFile.toString();
+		} else {
+			address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+			target = null;
+		}
+		try (ServerSocketChannel server = SocketCable.listen(address)) {
+			if (target == null) {
+				target = Integer.toString(((InetSocketAddress) server.getLocalAddress()).getPort());
+			}
+			Process sender = startSender(kind, target, amount);
+			try (SocketCable cable = SocketCable.accept(server)) {
+				receive(cable, kind);
+			}
+			sender.waitFor();
+		} finally {
+			if (socketFile != null) {
+				Files.deleteIfExists(socketFile);
+				Files.deleteIfExists(socketFile.getParent());
+			}
+		}
+	}
+
+	private static Process startSender(String kind, String target, int amount) throws IOException {
+		List<String> command = new ArrayList<String>();
+		command.add(ProcessHandle.current().info().command().orElse("java"));
+		String modulePath = System.getProperty("jdk.module.path");
+		if (modulePath != null) {
+			command.add("--module-path");
+			command.add(modulePath);
+			command.add("--module");
+			command.add(SocketCableBenchmark.class.getModule().getName() + "/" + SocketCableBenchmark.class.getName());
+		} else {
+			command.add("-cp");
+			command.add(System.getProperty("java.class.path"));
+			command.add(SocketCableBenchmark.class.getName());
+		}
+		command.add("send");
+		command.add(kind);
+		command.add(target);
+		command.add(Integer.toString(amount));
+		return new ProcessBuilder(command).redirectOutput(ProcessBuilder.Redirect.INHERIT)
+				.redirectError(ProcessBuilder.Redirect.INHERIT).directory(new File(".")).start();
+	}
+
+	/**
+	 * creates the address of a Unix domain socket, the class exists from Java 16
+	 * on and the project is compiled for Java 15
+	 */
+	private static SocketAddress unixAddress(Path file) throws ReflectiveOperationException {
+		return (SocketAddress) Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", Path.class)
+				.invoke(null, file);
+	}
+
+	private static void send(String kind, String target, int amount) throws Exception {
+		SocketAddress address = kind.equals("unix") ? unixAddress(Path.of(target))
+				: new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(target));
+		byte[] data = new byte[FRAME_SIZE];
+		new Random(0).nextBytes(data);
+		String[] encoded = new DataEncoder8B6T().encode(data);
+		TernaryBuffer[] frame = new TernaryBuffer[encoded.length];
+		for (int i = 0; i < encoded.length; i++) {
+			frame[i] = TernaryBuffer.valueOf(encoded[i]);
+		}
+		long frames = (long) amount * BYTES_PER_MB / FRAME_SIZE;
+		try (SocketCable cable = SocketCable.connect(address)) {
+			for (long i = 0; i < frames; i++) {
+				if (!cable.transmit(frame)) {
+					throw new IOException("Frame is not sent!!!");
+				}
+			}
+		}
+	}
+
+	private static void receive(SocketCable cable, String kind) throws InterruptedException {
+		DataDecoder8B6T decoder = new DataDecoder8B6T();
+		long frames = 0;
+		long bytes = 0;
+		long start = 0;
+		while (true) {
+			String[] frame;
+			try {
+				frame = cable.receive(RECEIVE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+			} catch (java.util.NoSuchElementException e) {
+				break;
+			}
+			if (frames == 0) {
+				start = System.nanoTime();
+			}
+			bytes += decoder.decode(frame).length;
+			frames++;
+		}
+		double seconds = (System.nanoTime() - start) / NANOS_PER_SECOND;
+		Terminal.printLine(kind + ": " + frames + " frames, " + bytes + " bytes in " + String.format("%.3f", seconds)
+				+ " s, " + String.format("%.1f", bytes / seconds / BYTES_PER_MB) + " MB/s, "
+				+ String.format("%.0f", frames / seconds) + " frames/s");
+	}
+}
@@ -13,6 +13,7 @@ import eit.linecode.exception.DecodeException;
 import eit.linecode.exception.EndOfPacketException;
 import eit.linecode.exception.StartOfStreamException;
 import eit.medium.Cable;
+import eit.medium.Line;
 
 /**
  * the main class of the program
@@ -39,7 +40,7 @@ public class Main {
 	public static void main(String[] args){
 
 		String input = "";
-		Cable<String[]> cable = new Cable<String[]>();
+		Line<String[]> cable = new Cable<String[]>();
 		DataEncoder8B6T encoder = new DataEncoder8B6T();
 		DataDecoder8B6T decoder = new DataDecoder8B6T();
 		//eftp => Easy File Transfer Protocol
@@ -125,9 +126,13 @@ public class Main {
 
 					File file = new File(input);
 					//Terminal.printLine(file.length());
-					eftp.transmitFile(file);
+					boolean accepted = eftp.transmitFile(file);
 					cable = eftp.cable;
-					Terminal.printLine("send file: " + file.getName());
+					if (accepted) {
+						Terminal.printLine("send file: " + file.getName());
+					} else {
+						Terminal.printLine("File is not sent completely!!!");
+					}
 
 				}
 
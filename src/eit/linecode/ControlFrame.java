@@ -1,8 +1,15 @@
 package eit.linecode;
 
 import java.io.File;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import eit.application.exception.FileLengthException;
 import eit.application.exception.FileNameException;
+import eit.linecode.exception.DecodeException;
 
 /**
  * so that the control frame is set up correctly, this class is very useful<br>
@@ -10,10 +17,25 @@ import eit.application.exception.FileNameException;
  * with this control frame all possible information for a transmission is communicated<br>
  * At the beginning of a transmission, the control frame is sent.<br>
  * then all data frames are communicated according to the segment numbers.<br>
- * The control frame contains the following information: <br>
+ * The control frame of version 1, see {@link #getBytes(File)}, contains the
+ * following information: <br>
  * <li>Length of the file name - 8 bits are available</li>
  * <li>Length of the file in bytes - 3 bytes are available</li>
  * <li>Name of the file - max. 256 bytes are available</li>
+ * The control frame of version 2, see {@link #writeTo(ByteBuffer)}, has no
+ * such limits and contains the following information: <br>
+ * <li>the magic byte 0x01, a frame of version 1 never starts with it because
+ * the name has at least 4 characters</li>
+ * <li>the version 2 in one byte</li>
+ * <li>the flags of the optional features in 4 bytes, for example
+ * {@link #FLAG_COMPRESSED}</li>
+ * <li>the size of the data frames as a varint</li>
+ * <li>the length of the file in bytes as a varint</li>
+ * <li>the length of the name in bytes as a varint</li>
+ * <li>the name of the file in UTF-8, only the name without any directory</li>
+ * a varint has 7 bits in every byte, the lowest bits first, and the highest bit
+ * is set in every byte except the last one. {@link #readFrom(ByteBuffer)} reads
+ * both versions.
  * 
  * for more in-depth information on this topic, please visit this source:<br>
  * https://en.wikipedia.org/wiki/File_Transfer_Protocol
@@ -21,10 +43,39 @@ import eit.application.exception.FileNameException;
  */
 
 public class ControlFrame {
+	/**
+	 * the first byte of a control frame of version 2
+	 */
+	public static final byte MAGIC = 0x01;
+	/**
+	 * the version which {@link #writeTo(ByteBuffer)} writes
+	 */
+	public static final byte VERSION = 2;
+	/**
+	 * the flag of compressed data frames
+	 */
+	public static final int FLAG_COMPRESSED = 1;
+	/**
+	 * the flag of data frames with a checksum
+	 */
+	public static final int FLAG_CHECKSUM = 1 << 1;
+	/**
+	 * the flag of data frames which start with an 8 byte sequence number, without
+	 * it they start with a 1 byte countdown
+	 */
+	public static final int FLAG_SEQUENCE_NUMBER = 1 << 2;
+	/**
+	 * the size of the data frames of a transmission with version 1
+	 */
+	public static final int V1_FRAME_SIZE = 2048;
+	/**
+	 * the largest name of version 2 in bytes
+	 */
+	public static final int MAX_NAME_BYTES = 4096;
+
 	private static final int MAX_SIZE_TO_TRANSMIT=16777215;
 	private static final int MAX_SIZE_OF_FILENAME=256;
 	private static final int MIN_SIZE_OF_FILENAME=4;
-	private static final int MIN_LENGTH_OF_BINARY=24;
 	private static final int LENGTH_OF_ONE_BYTE_IN_BIT=8;
 	//we have to convert file length in 3 bytes
 	private static final int SIZE_OF_FILE_LENGTH=3;
@@ -32,11 +83,78 @@ public class ControlFrame {
 	private static final int THIRD_INDEX_OF_RESULT=3;
 	//from the 4th begin with data name in bytes
 	private static final int FOURTH_INDEX_OF_RESULT=4;
+	// magic, version and flags of version 2
+	private static final int FIXED_SIZE = 6;
+	private static final int VARINT_BITS = 7;
+	private static final int VARINT_MASK = 0x7f;
+	private static final int VARINT_MORE = 0x80;
 	public byte fileNameLength;
 	public byte[] fileLength = new byte[SIZE_OF_FILE_LENGTH];
 	public byte[] filename;
-	
-	/** With this method, the control frame is compiled from file information
+
+	private int version = VERSION;
+	private int flags;
+	private int frameSize;
+	private long length;
+	private String name;
+	private byte[] nameBytes;
+
+	/**
+	 * is the standard constructor, the frame is compiled later with
+	 * {@link #getBytes(File)}
+	 */
+	public ControlFrame() {
+	}
+
+	/**
+	 * creates a control frame of version 2 for a file
+	 *
+	 * @param file      the file from which we want to create a control frame
+	 * @param frameSize the number of file bytes in a data frame
+	 * @param flags     the optional features, for example {@link #FLAG_CHECKSUM}
+	 */
+	public ControlFrame(File file, int frameSize, int flags) {
+		this(file.getName(), file.length(), frameSize, flags);
+	}
+
+	/**
+	 * creates a control frame of version 2
+	 *
+	 * @param name      the name of the file
+	 * @param length    the length of the file in bytes
+	 * @param frameSize the number of file bytes in a data frame
+	 * @param flags     the optional features, for example {@link #FLAG_CHECKSUM}
+	 * @throws FileNameException   if the name is empty, longer than
+	 *                             MAX_NAME_BYTES in UTF-8 or not a plain name,
+	 *                             see {@link #isPlainName(String)}
+	 * @throws FileLengthException if the length is negative
+	 */
+	public ControlFrame(String name, long length, int frameSize, int flags) {
+		byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length == 0) {
+			throw new FileNameException("File name is too short!!!");
+		}
+		if (bytes.length > MAX_NAME_BYTES) {
+			throw new FileNameException("File name is too big!!!");
+		}
+		if (!isPlainName(name)) {
+			throw new FileNameException("File name must not contain a path!!!");
+		}
+		if (length < 0) {
+			throw new FileLengthException("File length is negative!!!");
+		}
+		if (frameSize <= 0) {
+			throw new IllegalArgumentException("Frame size must be positive!!!");
+		}
+		this.name = name;
+		this.nameBytes = bytes;
+		this.length = length;
+		this.frameSize = frameSize;
+		this.flags = flags;
+	}
+
+	/** With this method, the control frame of version 1 is compiled from file
+	 * information
 	 * @param file the file from which we want to create a control frame.
 	 * @return a control frame in byte array.
 	 */
@@ -55,33 +173,16 @@ public class ControlFrame {
 
 		
 		// <==control FILE LENGTH ==>>
-		if (fileLength.length > MAX_SIZE_TO_TRANSMIT) {
+		if (file.length() > MAX_SIZE_TO_TRANSMIT) {
 			throw new FileLengthException("File is too big!!!");
 		}
 		// <==End of control FILE LENGTH ==>>
 		
 		int sizeOfFileInInteger = (int) file.length();
 
-		// convert in binary
-		String binary = "";
-		while (sizeOfFileInInteger != 0) {
-			binary = (sizeOfFileInInteger % 2) + binary;
-			sizeOfFileInInteger = sizeOfFileInInteger / 2;
-		}
-		// bring it to 24 bit if is smaller
-		if (binary.length() < MIN_LENGTH_OF_BINARY) {
-			int lower = MIN_LENGTH_OF_BINARY - binary.length();
-			for (int i = 0; i < lower; i++) {
-				binary = "0" + binary;
-			}
-		}
-		// Distribute binary representation in bytes pack in file lengh
+		// Distribute the length in bytes, the highest byte first
 		for (int i = 0; i < fileLength.length; i++) {
-			String temp = binary.substring(0, LENGTH_OF_ONE_BYTE_IN_BIT);
-			binary = binary.substring(LENGTH_OF_ONE_BYTE_IN_BIT);
-
-			int s = binaryInDecimal(temp);
-			fileLength[i] = (byte) s;
+			fileLength[i] = (byte) (sizeOfFileInInteger >>> (LENGTH_OF_ONE_BYTE_IN_BIT * (fileLength.length - 1 - i)));
 		}
 		
 		this.filename = file.getName().getBytes();
@@ -97,7 +198,170 @@ public class ControlFrame {
 		return result;
 	}
 
-	
+	/**
+	 * @return the number of bytes which {@link #writeTo(ByteBuffer)} writes
+	 */
+	public int encodedSize() {
+		return FIXED_SIZE + varintSize(frameSize) + varintSize(length) + varintSize(nameBytes.length) + nameBytes.length;
+	}
+
+	/**
+	 * writes the control frame of version 2 at the position of the buffer
+	 *
+	 * @param target the buffer, it must have encodedSize bytes left
+	 */
+	public void writeTo(ByteBuffer target) {
+		target.put(MAGIC);
+		target.put(VERSION);
+		target.putInt(flags);
+		putVarint(target, frameSize);
+		putVarint(target, length);
+		putVarint(target, nameBytes.length);
+		target.put(nameBytes);
+	}
+
+	/**
+	 * @return the control frame of version 2 in byte array
+	 */
+	public byte[] toBytes() {
+		ByteBuffer result = ByteBuffer.allocate(encodedSize());
+		writeTo(result);
+		return result.array();
+	}
+
+	/**
+	 * reads a control frame of version 1 or 2 from the position of the buffer.<br>
+	 * the name length of version 1 counts characters and not bytes, so the name
+	 * of version 1 is all of the rest of the buffer. a frame of version 1 has the
+	 * frame size V1_FRAME_SIZE and no flags.
+	 *
+	 * @param source the buffer which contains the frame
+	 * @return the control frame
+	 * @throws DecodeException if the frame is too short or wrong or has an unknown
+	 *                         version
+	 */
+	public static ControlFrame readFrom(ByteBuffer source) throws DecodeException {
+		try {
+			byte first = source.get();
+			if (first != MAGIC) {
+				long length = 0;
+				for (int i = 0; i < SIZE_OF_FILE_LENGTH; i++) {
+					length = (length << LENGTH_OF_ONE_BYTE_IN_BIT) | (source.get() & 0xff);
+				}
+				byte[] bytes = new byte[source.remaining()];
+				source.get(bytes);
+				ControlFrame frame = new ControlFrame(new String(bytes, Charset.defaultCharset()), length, V1_FRAME_SIZE, 0);
+				frame.version = 1;
+				return frame;
+			}
+			byte version = source.get();
+			if (version != VERSION) {
+				throw new DecodeException("Unknown version " + version + "!!!");
+			}
+			int flags = source.getInt();
+			long frameSize = getVarint(source);
+			long length = getVarint(source);
+			long nameSize = getVarint(source);
+			if (frameSize <= 0 || frameSize > Integer.MAX_VALUE || length < 0 || nameSize <= 0
+					|| nameSize > MAX_NAME_BYTES || nameSize > source.remaining()) {
+				throw new DecodeException("Wrong control frame!!!");
+			}
+			ByteBuffer nameBytes = source.slice();
+			nameBytes.limit((int) nameSize);
+			source.position(source.position() + (int) nameSize);
+			CharBuffer name = StandardCharsets.UTF_8.newDecoder().decode(nameBytes);
+			return new ControlFrame(name.toString(), length, (int) frameSize, flags);
+		} catch (BufferUnderflowException e) {
+			throw new DecodeException("Control frame is too short!!!");
+		} catch (CharacterCodingException | FileNameException e) {
+			throw new DecodeException("Wrong file name!!!");
+		}
+	}
+
+	/**
+	 * checks that a name only names a file and no directory, so a received file
+	 * cannot be written outside of the working directory
+	 *
+	 * @param name the name of the file
+	 * @return false if the name contains a separator or a null character or is
+	 *         . or ..
+	 */
+	public static boolean isPlainName(String name) {
+		return name.indexOf('/') < 0 && name.indexOf('\\') < 0 && name.indexOf('\0') < 0 && !name.equals(".")
+				&& !name.equals("..");
+	}
+
+	private static int varintSize(long value) {
+		int size = 1;
+		while ((value >>>= VARINT_BITS) != 0) {
+			size++;
+		}
+		return size;
+	}
+
+	private static void putVarint(ByteBuffer target, long value) {
+		while ((value & ~VARINT_MASK) != 0) {
+			target.put((byte) ((value & VARINT_MASK) | VARINT_MORE));
+			value >>>= VARINT_BITS;
+		}
+		target.put((byte) value);
+	}
+
+	private static long getVarint(ByteBuffer source) {
+		long value = 0;
+		for (int shift = 0; shift < Long.SIZE; shift += VARINT_BITS) {
+			byte b = source.get();
+			value |= (long) (b & VARINT_MASK) << shift;
+			if ((b & VARINT_MORE) == 0) {
+				return value;
+			}
+		}
+		throw new DecodeException("Varint is too long!!!");
+	}
+
+	/**
+	 * @return 1 or 2
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return the flags of the optional features
+	 */
+	public int getFlags() {
+		return flags;
+	}
+
+	/**
+	 * @param flag one or more flags, for example {@link #FLAG_COMPRESSED}
+	 * @return true if all of the flags are set
+	 */
+	public boolean hasFlags(int flag) {
+		return (flags & flag) == flag;
+	}
+
+	/**
+	 * @return the number of file bytes in a data frame
+	 */
+	public int getFrameSize() {
+		return frameSize;
+	}
+
+	/**
+	 * @return the length of the file in bytes
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * @return the name of the file
+	 */
+	public String getName() {
+		return name;
+	}
+
 	/** this function converts binary representation into decimal
 	 * @param binary binary representation
 	 * @return Integer number that came about by converting binary 
@@ -105,10 +369,8 @@ public class ControlFrame {
 	public static int binaryInDecimal(String binary) {
 		int result = 0;
 
-		for (int i = binary.length() - 1; i >= 0; i--) {
-			if (binary.charAt(i) == '1') {
-				result += Math.pow(2, binary.length() - 1 - i);
-			}
+		for (int i = 0; i < binary.length(); i++) {
+			result = (result << 1) | (binary.charAt(i) == '1' ? 1 : 0);
 		}
 
 		return result;
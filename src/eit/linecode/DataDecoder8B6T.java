@@ -1,5 +1,12 @@
 package eit.linecode;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
 import eit.linecode.exception.DecodeException;
 import eit.linecode.exception.EndOfPacketException;
 import eit.linecode.exception.StartOfStreamException;
@@ -25,118 +32,193 @@ import eit.linecode.exception.StartOfStreamException;
  */
 public class DataDecoder8B6T extends Functions implements CodeInterface {
 
-	private static final int HEXDECIMAL_BASE = 16;
 	private static final int SIZE_OF_8B6T = 6;
 	private static final int DATASTREAM1 = 1;
 	private static final int DATASTREAM2 = 2;
 	private static final int DATASTREAM3 = 3;
-	private static final int START_OF_NEGATIVE_HEXDECIMAL = 127;
-	private static final int TWO_COMPLIMENT = 256;
+	private static final int THREE_DATASTREAMS = 3;
+
+	/**
+	 * from this number of bytes on the data streams are decoded in parallel, if a
+	 * pool is given
+	 */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 64 * 1024;
+
+	// the pool for the parallel mode, null if every data stream is decoded in the
+	// calling thread
+	private final ForkJoinPool pool;
+	private final int parallelThreshold;
+	private final int laneChunkSize;
+	// delimiters of the three data streams for decodeInto
+	private static final String[] START_OF_STREAMS = { STARTOFDATASTREAM1, STARTOFDATASTREAM2, STARTOFDATASTREAM3 };
+	private static final String[] END_OF_STREAMS = { ENDOFDATASTREAM1, ENDOFDATASTREAM2, ENDOFDATASTREAM3 };
+	private static final String[] INVERTED_END_OF_STREAMS = { inverted(ENDOFDATASTREAM1), inverted(ENDOFDATASTREAM2),
+			inverted(ENDOFDATASTREAM3) };
+	// packed delimiters for decode(TernaryBuffer[]), the end of stream delimiters
+	// as sent and inverted
+	private static final TernaryBuffer[] START_OF_STREAM = { TernaryBuffer.valueOf(STARTOFDATASTREAM1),
+			TernaryBuffer.valueOf(STARTOFDATASTREAM2), TernaryBuffer.valueOf(STARTOFDATASTREAM3) };
+	private static final TernaryBuffer[][] END_OF_STREAM = {
+			{ TernaryBuffer.valueOf(ENDOFDATASTREAM1), TernaryBuffer.valueOf(inverted(ENDOFDATASTREAM1)) },
+			{ TernaryBuffer.valueOf(ENDOFDATASTREAM2), TernaryBuffer.valueOf(inverted(ENDOFDATASTREAM2)) },
+			{ TernaryBuffer.valueOf(ENDOFDATASTREAM3), TernaryBuffer.valueOf(inverted(ENDOFDATASTREAM3)) } };
+
+	/**
+	 * is the standard constructor. all data streams are decoded one after the
+	 * other in the calling thread.
+	 */
+	public DataDecoder8B6T() {
+		this(null, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * creates a decoder with parallel mode<br>
+	 * every data stream has its own DC balance bit, so the three data streams can
+	 * be decoded as three fork-join tasks without any coordination. every task
+	 * writes its bytes directly to their position in the result, so the three
+	 * data streams are also mixed together in parallel.
+	 *
+	 * @param pool              the pool which runs the tasks, so the number of
+	 *                          cores can be configured
+	 * @param parallelThreshold from this number of bytes on the parallel mode is
+	 *                          used, smaller data is decoded in the calling thread
+	 */
+	public DataDecoder8B6T(ForkJoinPool pool, int parallelThreshold) {
+		this(pool, parallelThreshold, 0);
+	}
+
+	/**
+	 * creates a decoder with parallel mode, which also splits every large data
+	 * stream into chunks, so one large frame can use more than three cores<br>
+	 * the DC balance bit at the beginning of every chunk is found with a prefix
+	 * scan, see {@link ParallelLane}.
+	 *
+	 * @param pool              the pool which runs the tasks, so the number of
+	 *                          cores can be configured
+	 * @param parallelThreshold from this number of bytes on the parallel mode is
+	 *                          used, smaller data is decoded in the calling thread
+	 * @param laneChunkSize     the number of code groups of a data stream which
+	 *                          are decoded in one task, 0 if the data streams are
+	 *                          not split
+	 */
+	public DataDecoder8B6T(ForkJoinPool pool, int parallelThreshold, int laneChunkSize) {
+		this.pool = pool;
+		this.parallelThreshold = parallelThreshold;
+		this.laneChunkSize = laneChunkSize;
+	}
 
 	/**
 	 * this function decodes a string from 8B6T to byte array<br>
-	 * First the parts of the 8B6T need to be stored in a string array. afterwards,
-	 * the DC balance rules are used to invert accordingly or remain unaffected.<br>
-	 * then parts are checked with the 23A 1a 100BASE T4 8B6T code table and the
-	 * corresponding value is assigned accordingly.<br>
-	 * here we have to pay attention to the 2 compliment.
+	 * every part of 6 symbols is converted to its base-3 key and looked up in the
+	 * reverse index {@link DecodeTable8B6T}, which applies the DC balance rules and
+	 * gives the corresponding value of the 23A 1a 100BASE T4 8B6T code table.<br>
 	 *
 	 * @param input is a String which consists of 8B6T codes.<br>
 	 *              this String is without Start/end of stream delimiter.we have to
 	 *              delete Start/end of stream delimiter before.<br>
 	 * @return return decoded parts of the input in the form of bytes array
+	 * @throws DecodeException if a part is not in the 8B6T code table
 	 */
 
 	private byte[] decodeLine(String input) {
 		// the 8b6t consists of 6 digits, so we have to divide the input by 6 so that we
 		// can determine the size of parts
-		String[] parts = new String[input.length() / SIZE_OF_8B6T];
-
-		// First the parts of the 8B6T need to be stored in a string array.
-		try {
-			int i = 0;
-			while (!input.isEmpty()) {
-				String temp = input.substring(0, SIZE_OF_8B6T);
-				parts[i] = temp;
-				input = input.substring(SIZE_OF_8B6T);
-				i++;
-			}
-		} catch (DecodeException e) {
-			e.printStackTrace();
-
-		}
-		// the rules of the DC balance must be used here.
-		// DC balance rules are used to invert accordingly or remain unaffected
-		int dcBalance = 0;
-		int wordWeight = 0;
-		for (int i = 0; i < parts.length; i++) {
-			wordWeight = cumulativeWeight(parts[i]);
-			if (dcBalance == 0 && wordWeight == 0) {
-				dcBalance = 0;
-				continue;
-			}
+		byte[] letters = new byte[input.length() / SIZE_OF_8B6T];
+		decodeLine(input, letters, 0, 1);
+		return letters;
+	}
 
-			if (dcBalance == 0 && wordWeight == 1) {
-				dcBalance = 1;
-				continue;
-			}
+	/**
+	 * decodes a data stream like {@link #decodeLine(String)}, but writes the bytes
+	 * directly into an array
+	 *
+	 * @param input   the main part of the data stream
+	 * @param letters the array for the decoded bytes
+	 * @param offset  the position of the first decoded byte
+	 * @param stride  the distance between two decoded bytes, 3 if the bytes are
+	 *                written to their position in the interleaved result
+	 * @throws DecodeException if a part is not in the 8B6T code table
+	 */
+	private static void decodeLine(String input, byte[] letters, int offset, int stride) {
+		decodeGroups(input, letters, offset, stride, 0, input.length() / SIZE_OF_8B6T, 0);
+	}
 
-			if (dcBalance == 1 && wordWeight == 0) {
-				dcBalance = 0;
-				continue;
-			}
-			if (dcBalance == 0 && wordWeight == -1) {
-				parts[i] = inverted(parts[i]);
-				dcBalance = 0;
-				continue;
-			}
-			if (dcBalance == 1 && wordWeight == -1) {
-				parts[i] = inverted(parts[i]);
-				dcBalance = 0;
-				continue;
-			}
-			if (dcBalance == 1 && wordWeight == 1) {
-				parts[i] = inverted(parts[i]);
-				dcBalance = 0;
+	/**
+	 * decodes a part of a data stream
+	 *
+	 * @param input     the main part of the data stream
+	 * @param letters   the array for the decoded bytes
+	 * @param offset    the position of the first decoded byte of the data stream
+	 * @param stride    the distance between two decoded bytes
+	 * @param from      the first code group
+	 * @param to        the code group after the last one
+	 * @param dcBalance the DC balance bit before the first code group
+	 * @return the DC balance bit after the last code group
+	 * @throws DecodeException if a part is not in the 8B6T code table
+	 */
+	private static int decodeGroups(String input, byte[] letters, int offset, int stride, int from, int to,
+			int dcBalance) {
+		// every part is looked up in the reverse index of the 23A 1a 100BASE T4 8B6T
+		// code table. the index also applies the rules of the DC balance, so the part
+		// is inverted accordingly or remains unaffected
+		for (int i = from; i < to; i++) {
+			int code = DecodeTable8B6T.code(input, i * SIZE_OF_8B6T);
+			int step = code == DecodeTable8B6T.INVALID ? DecodeTable8B6T.INVALID
+					: DecodeTable8B6T.step(code, dcBalance);
+			if (step == DecodeTable8B6T.INVALID) {
+				throw new DecodeException("Wrong code group!!!");
 			}
+			letters[offset + i * stride] = DecodeTable8B6T.value(step);
+			dcBalance = DecodeTable8B6T.nextBalance(step);
 		}
+		return dcBalance;
+	}
 
-		byte[] letters = new byte[parts.length];
-		//
-		// here the party will be compared with the 23A 1a 100BASE T4 8B6T code table
-		// and
-		// given its worth accordingly
-		int tempIntForConvertHexToInt = 0;
-		for (int i = 0; i < parts.length; i++) {
-			for (int j = 0; j < CODETABLE.length; j++) {
-				if (parts[i].equals(CODETABLE[j])) {
-					/*
-					 * In java, bits from 128 onwards are interpreted as a 2's compliment. So I
-					 * subtract 256 to get the positive number.
-					 */
-					if (j > START_OF_NEGATIVE_HEXDECIMAL) {
-						String value = Integer.toHexString(j);
-						try {
-							// it will convert to hexadecimal
-							tempIntForConvertHexToInt = Integer.parseInt(value, HEXDECIMAL_BASE);
-						} catch (DecodeException ex) {
-							throw new DecodeException("Wrong data size!!!");
-						}
-						tempIntForConvertHexToInt = tempIntForConvertHexToInt - TWO_COMPLIMENT;
-						byte b = (byte) tempIntForConvertHexToInt;
-						letters[i] = b;
-
-					} else {
-						letters[i] = (byte) j;
-
+	/**
+	 * decodes a data stream in a task of the pool. a data stream with more than
+	 * laneChunkSize code groups is split into chunks, which are decoded as
+	 * fork-join tasks, see {@link ParallelLane}.
+	 *
+	 * @param input   the main part of the data stream
+	 * @param letters the array for the decoded bytes
+	 * @param offset  the position of the first decoded byte
+	 * @throws DecodeException if a part is not in the 8B6T code table
+	 */
+	private void decodeLineInChunks(String input, byte[] letters, int offset) {
+		int groups = input.length() / SIZE_OF_8B6T;
+		if (laneChunkSize <= 0 || groups <= laneChunkSize) {
+			decodeLine(input, letters, offset, THREE_DATASTREAMS);
+			return;
+		}
+		ParallelLane.code(groups, laneChunkSize, new ParallelLane.Coder() {
+			@Override
+			public int transition(int from, int to) {
+				// the chunk is run from both DC balance bits at once. a wrong code group is
+				// skipped here, it is reported when the chunk is decoded
+				int fromZero = 0;
+				int fromOne = 1;
+				for (int i = from; i < to; i++) {
+					int code = DecodeTable8B6T.code(input, i * SIZE_OF_8B6T);
+					if (code == DecodeTable8B6T.INVALID) {
+						fromZero = 0;
+						fromOne = 0;
+						continue;
 					}
+					fromZero = nextBalance(DecodeTable8B6T.step(code, fromZero));
+					fromOne = nextBalance(DecodeTable8B6T.step(code, fromOne));
 				}
-
+				return ParallelLane.transition(fromZero, fromOne);
 			}
 
-		}
+			@Override
+			public int code(int from, int to, int dcBalance) {
+				return decodeGroups(input, letters, offset, THREE_DATASTREAMS, from, to, dcBalance);
+			}
 
-		return letters;
+			private int nextBalance(int step) {
+				return step == DecodeTable8B6T.INVALID ? 0 : DecodeTable8B6T.nextBalance(step);
+			}
+		});
 	}
 
 	/**
@@ -227,13 +309,18 @@ public class DataDecoder8B6T extends Functions implements CodeInterface {
 			throw new EndOfPacketException("End of Stream 3 is incorrect!!!");
 		}
 
-		byte[] first = new byte[input1.length()];
-		byte[] second = new byte[input1.length()];
-		byte[] third = new byte[input1.length()];
-		// when the size of data streams are null
-		if (first == null || second == null || third == null) {
-			throw new DecodeException("Wrong data size!!!");
+		// in parallel mode the three data streams are decoded as fork-join tasks, every
+		// task writes its bytes directly to their final position
+		if (pool != null && checkInputSize(input1) && checkInputSize(input2) && checkInputSize(input3)
+				&& (input1.length() + input2.length() + input3.length()) / SIZE_OF_8B6T >= parallelThreshold
+				&& isInterleaved(input1.length() / SIZE_OF_8B6T, input2.length() / SIZE_OF_8B6T,
+						input3.length() / SIZE_OF_8B6T)) {
+			return decodeParallel(input1, input2, input3);
 		}
+
+		byte[] first;
+		byte[] second;
+		byte[] third;
 		// The size of the first data stream must be checked.
 		if (checkInputSize(input1)) {
 			first = decodeLine(input1);
@@ -256,6 +343,19 @@ public class DataDecoder8B6T extends Functions implements CodeInterface {
 			// if false we have to throw DecodeException
 			throw new DecodeException("Wrong data size!!!");
 		}
+		return interleave(first, second, third);
+	}
+
+	/**
+	 * the three decoded data streams are mixed together in the order in which the
+	 * bytes were dealt to the data streams by the encoder.
+	 *
+	 * @param first  decoded bytes of the first data stream
+	 * @param second decoded bytes of the second data stream
+	 * @param third  decoded bytes of the third data stream
+	 * @return the decoded bytes in the original order
+	 */
+	private byte[] interleave(byte[] first, byte[] second, byte[] third) {
 		// we declare a byte array with the size of 3 data streams
 		byte[] letters = new byte[third.length + second.length + first.length];
 
@@ -291,4 +391,204 @@ public class DataDecoder8B6T extends Functions implements CodeInterface {
 		return letters;
 	}
 
+	/**
+	 * this function decodes 3 packed data streams like {@link #decode(String[])}.
+	 * the delimiters are compared word by word and every code group is read as 12
+	 * bits from the packed data stream.
+	 *
+	 * @param data the packed first, second and third data stream
+	 * @return the decoded bytes in the original order
+	 * @throws StartOfStreamException if something is wrong with the start of stream
+	 *                                delimiter
+	 * @throws EndOfPacketException   if something is wrong with the end of stream
+	 *                                delimiter
+	 * @throws DecodeException        if something is wrong with the main part
+	 */
+	public byte[] decode(TernaryBuffer[] data) throws StartOfStreamException, EndOfPacketException, DecodeException {
+		if (data[0] == null || data[1] == null || data[2] == null) {
+			throw new DecodeException("Wrong data size!!!");
+		}
+		// check the size of the data streams
+		for (int i = 0; i < THREE_DATASTREAMS; i++) {
+			if (data[i].length() < START_OF_STREAM[i].length() + END_OF_STREAM[i][0].length()) {
+				throw new DecodeException("Wrong data size!!!");
+			}
+		}
+		if (data[0].length() < START_OF_STREAM[0].length() + END_OF_STREAM[0][0].length() + SIZE_OF_8B6T) {
+			throw new DecodeException("Wrong data size!!!");
+		}
+		// check the start of stream delimiters
+		for (int i = 0; i < THREE_DATASTREAMS; i++) {
+			if (!data[i].regionMatches(0, START_OF_STREAM[i], 0, START_OF_STREAM[i].length())) {
+				throw new StartOfStreamException("Start of Stream " + (i + 1) + " is incorrect!!!");
+			}
+		}
+		// check the end of stream delimiters, which can also be inverted
+		for (int i = 0; i < THREE_DATASTREAMS; i++) {
+			int end = data[i].length() - END_OF_STREAM[i][0].length();
+			if (!data[i].regionMatches(end, END_OF_STREAM[i][0], 0, END_OF_STREAM[i][0].length())
+					&& !data[i].regionMatches(end, END_OF_STREAM[i][1], 0, END_OF_STREAM[i][1].length())) {
+				throw new EndOfPacketException("End of Stream " + (i + 1) + " is incorrect!!!");
+			}
+		}
+		// the main parts must be divisible by 6
+		for (int i = 0; i < THREE_DATASTREAMS; i++) {
+			if ((data[i].length() - START_OF_STREAM[i].length() - END_OF_STREAM[i][0].length())
+					% SIZE_OF_8B6T != 0) {
+				throw new DecodeException("Wrong data size!!!");
+			}
+		}
+		byte[] first = decodeLine(data[0], DATASTREAM1);
+		byte[] second = decodeLine(data[1], DATASTREAM2);
+		byte[] third = decodeLine(data[2], DATASTREAM3);
+		return interleave(first, second, third);
+	}
+
+	/**
+	 * decodes the main part of a packed data stream, which is between the start of
+	 * stream delimiter and the end of stream delimiter
+	 *
+	 * @param input      the packed data stream
+	 * @param dataStream the data stream 1, 2 or 3
+	 * @return decoded parts of the input in the form of bytes array
+	 * @throws DecodeException if a part is not in the 8B6T code table
+	 */
+	private byte[] decodeLine(TernaryBuffer input, int dataStream) {
+		int from = START_OF_STREAM[dataStream - 1].length();
+		int to = input.length() - END_OF_STREAM[dataStream - 1][0].length();
+		byte[] letters = new byte[(to - from) / SIZE_OF_8B6T];
+		int dcBalance = 0;
+		for (int i = 0; i < letters.length; i++) {
+			int code = DecodeTable8B6T.packedCode(input.getDigits(from + i * SIZE_OF_8B6T, SIZE_OF_8B6T));
+			int step = code == DecodeTable8B6T.INVALID ? DecodeTable8B6T.INVALID
+					: DecodeTable8B6T.step(code, dcBalance);
+			if (step == DecodeTable8B6T.INVALID) {
+				throw new DecodeException("Wrong code group!!!");
+			}
+			letters[i] = DecodeTable8B6T.value(step);
+			dcBalance = DecodeTable8B6T.nextBalance(step);
+		}
+		return letters;
+	}
+
+
+	/**
+	 * checks whether the sizes of the data streams can come from the encoder. the
+	 * bytes are dealt round-robin, so the first data stream has at most one byte
+	 * more than the others.
+	 *
+	 * @param first  number of bytes in the first data stream
+	 * @param second number of bytes in the second data stream
+	 * @param third  number of bytes in the third data stream
+	 * @return true if every byte has a unique position in the result
+	 */
+	private static boolean isInterleaved(int first, int second, int third) {
+		return first >= second && second >= third && third >= first - 1;
+	}
+
+	/**
+	 * the three data streams are decoded as fork-join tasks in the pool
+	 *
+	 * @param input1 the main part of the first data stream
+	 * @param input2 the main part of the second data stream
+	 * @param input3 the main part of the third data stream
+	 * @return the decoded bytes in the original order
+	 * @throws DecodeException if a part is not in the 8B6T code table
+	 */
+	private byte[] decodeParallel(String input1, String input2, String input3) {
+		byte[] letters = new byte[(input1.length() + input2.length() + input3.length()) / SIZE_OF_8B6T];
+		pool.invoke(new RecursiveAction() {
+			@Override
+			protected void compute() {
+				ForkJoinTask<?> second = ForkJoinTask
+						.adapt(() -> decodeLineInChunks(input2, letters, DATASTREAM2 - 1)).fork();
+				ForkJoinTask<?> third = ForkJoinTask
+						.adapt(() -> decodeLineInChunks(input3, letters, DATASTREAM3 - 1)).fork();
+				decodeLineInChunks(input1, letters, DATASTREAM1 - 1);
+				second.join();
+				third.join();
+			}
+		});
+		return letters;
+	}
+
+	/**
+	 * this function decodes 3 data streams like {@link #decode(String[])}, but
+	 * writes every decoded byte directly to its final position in a buffer of the
+	 * caller. no array is allocated, so the same buffer can be used again for every
+	 * frame. the buffer can be a heap or a direct buffer.
+	 *
+	 * @param data the first, second and third data stream
+	 * @param dest the decoded bytes are written from its position on, afterwards
+	 *             the position is behind the last decoded byte
+	 * @return the number of decoded bytes
+	 * @throws StartOfStreamException  if something is wrong with the start of
+	 *                                 stream delimiter
+	 * @throws EndOfPacketException    if something is wrong with the end of stream
+	 *                                 delimiter
+	 * @throws DecodeException         if something is wrong with the main part or
+	 *                                 the sizes of the data streams do not fit
+	 *                                 together
+	 * @throws BufferOverflowException if the buffer has not enough space, then
+	 *                                 nothing is written
+	 */
+	public int decodeInto(String[] data, ByteBuffer dest)
+			throws StartOfStreamException, EndOfPacketException, DecodeException, BufferOverflowException {
+		if (data[0] == null || data[1] == null || data[2] == null) {
+			throw new DecodeException("Wrong data size!!!");
+		}
+		String[] starts = START_OF_STREAMS;
+		String[] ends = END_OF_STREAMS;
+		// check the size of the data streams
+		for (int i = 0; i < THREE_DATASTREAMS; i++) {
+			if (data[i].length() < starts[i].length() + ends[i].length()) {
+				throw new DecodeException("Wrong data size!!!");
+			}
+		}
+		if (data[0].length() < starts[0].length() + ends[0].length() + SIZE_OF_8B6T) {
+			throw new DecodeException("Wrong data size!!!");
+		}
+		// check the start and end of stream delimiters without copying the data streams
+		for (int i = 0; i < THREE_DATASTREAMS; i++) {
+			if (!data[i].startsWith(starts[i])) {
+				throw new StartOfStreamException("Start of Stream " + (i + 1) + " is incorrect!!!");
+			}
+		}
+		for (int i = 0; i < THREE_DATASTREAMS; i++) {
+			if (!data[i].endsWith(ends[i]) && !data[i].endsWith(INVERTED_END_OF_STREAMS[i])) {
+				throw new EndOfPacketException("End of Stream " + (i + 1) + " is incorrect!!!");
+			}
+		}
+		int[] groups = new int[THREE_DATASTREAMS];
+		for (int i = 0; i < THREE_DATASTREAMS; i++) {
+			int main = data[i].length() - starts[i].length() - ends[i].length();
+			if (main % SIZE_OF_8B6T != 0) {
+				throw new DecodeException("Wrong data size!!!");
+			}
+			groups[i] = main / SIZE_OF_8B6T;
+		}
+		if (!isInterleaved(groups[0], groups[1], groups[2])) {
+			throw new DecodeException("Wrong data size!!!");
+		}
+		int length = groups[0] + groups[1] + groups[2];
+		if (dest.remaining() < length) {
+			throw new BufferOverflowException();
+		}
+		int begin = dest.position();
+		for (int i = 0; i < THREE_DATASTREAMS; i++) {
+			int dcBalance = 0;
+			for (int j = 0; j < groups[i]; j++) {
+				int code = DecodeTable8B6T.code(data[i], starts[i].length() + j * SIZE_OF_8B6T);
+				int step = code == DecodeTable8B6T.INVALID ? DecodeTable8B6T.INVALID
+						: DecodeTable8B6T.step(code, dcBalance);
+				if (step == DecodeTable8B6T.INVALID) {
+					throw new DecodeException("Wrong code group!!!");
+				}
+				dest.put(begin + i + j * THREE_DATASTREAMS, DecodeTable8B6T.value(step));
+				dcBalance = DecodeTable8B6T.nextBalance(step);
+			}
+		}
+		dest.position(begin + length);
+		return length;
+	}
 }
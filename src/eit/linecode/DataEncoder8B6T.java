@@ -1,5 +1,13 @@
 package eit.linecode;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
 /**
  *
  * This class implements the encoder functionality of the 8B/6T encoder It is
@@ -12,15 +20,74 @@ package eit.linecode;
  * the following Internet-address:<br>
  * https://www.liveaction.com/resources/glossary/signal-encoding-fast-ethernet-environment-signal-encoding/
  * <br>
+ * the DC balance bits only live during one call of encode, so the encoder is
+ * reentrant and one instance can be used by many threads at once without any
+ * lock.
  *
  * @author Hamed Nakhei
  */
 public class DataEncoder8B6T extends Functions implements CodeInterface {
 
-	private static int dcBalance1 = 0, dcBalance2 = 0, dcBalance3 = 0;
-	private static final int TWO_COMPLIMENT = 256;
 	private static final int MODULO_THREE = 3;
 	private static final int THREE_DATASTREAMS = 3;
+	private static final int SIZE_OF_8B6T = 6;
+	private static final int DATASTREAM1 = 1;
+	private static final int DATASTREAM2 = 2;
+	private static final int DATASTREAM3 = 3;
+
+	/**
+	 * from this number of bytes on the data streams are encoded in parallel, if a
+	 * pool is given
+	 */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 64 * 1024;
+
+	// the pool for the parallel mode, null if every data stream is encoded in the
+	// calling thread
+	private final ForkJoinPool pool;
+	private final int parallelThreshold;
+	private final int laneChunkSize;
+
+	/**
+	 * is the standard constructor. all data streams are encoded one after the
+	 * other in the calling thread.
+	 */
+	public DataEncoder8B6T() {
+		this(null, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * creates an encoder with parallel mode<br>
+	 * every data stream has its own DC balance bit, so the three data streams can
+	 * be encoded as three fork-join tasks without any coordination.
+	 *
+	 * @param pool              the pool which runs the tasks, so the number of
+	 *                          cores can be configured
+	 * @param parallelThreshold from this number of bytes on the parallel mode is
+	 *                          used, smaller data is encoded in the calling thread
+	 */
+	public DataEncoder8B6T(ForkJoinPool pool, int parallelThreshold) {
+		this(pool, parallelThreshold, 0);
+	}
+
+	/**
+	 * creates an encoder with parallel mode, which also splits every large data
+	 * stream into chunks, so one large frame can use more than three cores<br>
+	 * the DC balance bit at the beginning of every chunk is found with a prefix
+	 * scan, see {@link ParallelLane}.
+	 *
+	 * @param pool              the pool which runs the tasks, so the number of
+	 *                          cores can be configured
+	 * @param parallelThreshold from this number of bytes on the parallel mode is
+	 *                          used, smaller data is encoded in the calling thread
+	 * @param laneChunkSize     the number of bytes of a data stream which are
+	 *                          encoded in one task, 0 if the data streams are not
+	 *                          split
+	 */
+	public DataEncoder8B6T(ForkJoinPool pool, int parallelThreshold, int laneChunkSize) {
+		this.pool = pool;
+		this.parallelThreshold = parallelThreshold;
+		this.laneChunkSize = laneChunkSize;
+	}
 
 	/**
 	 * This function encode the text to the 8B/6T<br>
@@ -56,129 +123,184 @@ public class DataEncoder8B6T extends Functions implements CodeInterface {
 	 */
 
 	public String[] encode(byte[] data) {
-		// at the beginning the variables are set to 0 if the function is called several
-		// times
-		dcBalance1 = 0;
-		dcBalance2 = 0;
-		dcBalance3 = 0;
-
-		// 3 temporary string variables are declared and initialized directly with start
-		// values
-		String temp1 = STARTOFDATASTREAM1;
-		String temp2 = STARTOFDATASTREAM2;
-		String temp3 = STARTOFDATASTREAM3;
+		if (pool != null && data.length >= parallelThreshold) {
+			return encodeParallel(data);
+		}
+		// every data stream is encoded with its own DC balance bit, which lives only
+		// during this call. so the encoder has no shared state and can be used by
+		// many threads at once
+		String[] text = new String[THREE_DATASTREAMS];
+		text[0] = encodeLine(data, DATASTREAM1, false);
+		text[1] = encodeLine(data, DATASTREAM2, false);
+		text[2] = encodeLine(data, DATASTREAM3, false);
+		return text;
+	}
 
-		for (int i = 0; i < data.length; i++) {
-			/*
-			 * In java, bits from 128 onwards are interpreted as a 2's compliment. So I add
-			 * 256 to get the positive number. or you could just get the positive with By
-			 * Byte.toUnsignedInt(0)
-			 */
-			int inputByteToInteger = Integer.parseInt(String.valueOf(data[i]));
-			
-			if (inputByteToInteger < 0) {
-				inputByteToInteger = inputByteToInteger + TWO_COMPLIMENT;
-			}
+	/**
+	 * This function encode the data to the 8B/6T like {@link #encode(byte[])}, but
+	 * the 3 data streams are returned in packed form, which needs about 4 times
+	 * less memory than a String.
+	 *
+	 * @param data the input which the user want to encode to 8B/6T
+	 * @return 3 packed data streams with start of stream delimiter, main segment
+	 *         and end of stream delimiter
+	 */
+	public TernaryBuffer[] encodeToBuffers(byte[] data) {
+		int dcBalance1 = 0;
+		int dcBalance2 = 0;
+		int dcBalance3 = 0;
 
-			// here we will calculate the wordBalancet
-			// we have to following DC balance encoding rules
-			int wordBalance = cumulativeWeight(CODETABLE[inputByteToInteger]);
+		TernaryBuffer temp1 = new TernaryBuffer(EncodeTable8B6T.streamLength(DATASTREAM1, data.length));
+		TernaryBuffer temp2 = new TernaryBuffer(EncodeTable8B6T.streamLength(DATASTREAM2, data.length));
+		TernaryBuffer temp3 = new TernaryBuffer(EncodeTable8B6T.streamLength(DATASTREAM3, data.length));
+		EncodeTable8B6T.putStartOfStream(DATASTREAM1, temp1);
+		EncodeTable8B6T.putStartOfStream(DATASTREAM2, temp2);
+		EncodeTable8B6T.putStartOfStream(DATASTREAM3, temp3);
+
+		for (int i = 0; i < data.length; i++) {
 			if (i % MODULO_THREE == 0) {
-				// a) If the 6T code group weight is 0, do not change the cumulative weight.
-				if (wordBalance == 0) {
-					temp1 = temp1 + CODETABLE[inputByteToInteger];
-					continue;
-				}
-				// b) If the 6T code group weight is 1, and the cumulative weight bit is 0,
-				// set the cumulative weight bit to 1.
-				if (wordBalance == 1 && dcBalance1 == 0) {
-					dcBalance1 = 1;
-					temp1 = temp1 + CODETABLE[inputByteToInteger];
-					continue;
-				}
-				// c) If the 6T code group weight is 1, and the cumulative weight bit is also 1,
-				// set the cumulative weight
-				// bit to 0, and then algebraically negate all the ternary symbol values in the
-				// 6T code group.
-				if (wordBalance == 1 && dcBalance1 == 1) {
-					dcBalance1 = 0;
-					temp1 = temp1 + inverted(CODETABLE[inputByteToInteger]);
-					continue;
-				}
+				dcBalance1 = EncodeTable8B6T.put(data[i], dcBalance1, temp1);
+			} else if (i % MODULO_THREE == 1) {
+				dcBalance2 = EncodeTable8B6T.put(data[i], dcBalance2, temp2);
+			} else {
+				dcBalance3 = EncodeTable8B6T.put(data[i], dcBalance3, temp3);
 			}
-			if (i % MODULO_THREE == 1) {
-				// a) If the 6T code group weight is 0, do not change the cumulative weight.
-				if (wordBalance == 0) {
-					temp2 = temp2 + CODETABLE[inputByteToInteger];
-					continue;
+		}
+		EncodeTable8B6T.putEndOfStream(DATASTREAM1, dcBalance1, temp1);
+		EncodeTable8B6T.putEndOfStream(DATASTREAM2, dcBalance2, temp2);
+		EncodeTable8B6T.putEndOfStream(DATASTREAM3, dcBalance3, temp3);
 
-				}
-				// b) If the 6T code group weight is 1, and the cumulative weight bit is 0,
-				// set the cumulative weight bit to 1.
-				if (wordBalance == 1 && dcBalance2 == 0) {
-					dcBalance2 = 1;
-					temp2 = temp2 + CODETABLE[inputByteToInteger];
-					continue;
-				}
-				// c) If the 6T code group weight is 1, and the cumulative weight bit is also 1,
-				// set the cumulative weight
-				// bit to 0, and then algebraically negate all the ternary symbol values in the
-				// 6T code group.
-				if (wordBalance == 1 && dcBalance2 == 1) {
-					dcBalance2 = 0;
-					temp2 = temp2 + inverted(CODETABLE[inputByteToInteger]);
-					continue;
-				}
+		return new TernaryBuffer[] { temp1, temp2, temp3 };
+	}
+
+	/**
+	 * the three data streams are encoded as fork-join tasks in the pool
+	 *
+	 * @param data the input which the user want to encode to 8B/6T
+	 * @return the same 3 data streams as {@link #encode(byte[])}
+	 */
+	private String[] encodeParallel(byte[] data) {
+		return pool.invoke(new RecursiveTask<String[]>() {
+			@Override
+			protected String[] compute() {
+				ForkJoinTask<String> second = ForkJoinTask.adapt(() -> encodeLine(data, DATASTREAM2, true)).fork();
+				ForkJoinTask<String> third = ForkJoinTask.adapt(() -> encodeLine(data, DATASTREAM3, true)).fork();
+				String first = encodeLine(data, DATASTREAM1, true);
+				return new String[] { first, second.join(), third.join() };
 			}
-			if (i % MODULO_THREE == 2) {
-				// a) If the 6T code group weight is 0, do not change the cumulative weight.
-				if (wordBalance == 0) {
-					temp3 = temp3 + CODETABLE[inputByteToInteger];
-					continue;
+		});
+	}
 
+	/**
+	 * encodes one data stream with its own DC balance bit. the bytes are dealt
+	 * round-robin to the data streams, so data stream 1 gets the bytes 0, 3, 6 ...
+	 * <br>
+	 * a data stream with more than laneChunkSize bytes is split into chunks, which
+	 * are encoded as fork-join tasks.
+	 *
+	 * @param data       the input which the user want to encode to 8B/6T
+	 * @param dataStream the data stream 1, 2 or 3
+	 * @param split      true if the method runs in a task of the pool and may
+	 *                   split the data stream
+	 * @return the data stream with start of stream delimiter, main segment and end
+	 *         of stream delimiter
+	 */
+	private String encodeLine(byte[] data, int dataStream, boolean split) {
+		char[] symbols = new char[EncodeTable8B6T.streamLength(dataStream, data.length)];
+		String start = EncodeTable8B6T.startOfStream(dataStream);
+		start.getChars(0, start.length(), symbols, 0);
+		int groups = EncodeTable8B6T.groupCount(dataStream, data.length);
+		int dcBalance;
+		if (split && laneChunkSize > 0 && groups > laneChunkSize) {
+			dcBalance = ParallelLane.code(groups, laneChunkSize, new ParallelLane.Coder() {
+				@Override
+				public int transition(int from, int to) {
+					// the chunk is run from both DC balance bits at once
+					int fromZero = 0;
+					int fromOne = 1;
+					for (int i = from; i < to; i++) {
+						byte value = data[dataStream - 1 + i * THREE_DATASTREAMS];
+						fromZero = EncodeTable8B6T.nextBalance(value, fromZero);
+						fromOne = EncodeTable8B6T.nextBalance(value, fromOne);
+					}
+					return ParallelLane.transition(fromZero, fromOne);
 				}
-				// b) If the 6T code group weight is 1, and the cumulative weight bit is 0,
-				// set the cumulative weight bit to 1.
-				if (wordBalance == 1 && dcBalance3 == 0) {
-					dcBalance3 = 1;
-					temp3 = temp3 + CODETABLE[inputByteToInteger];
-					continue;
-				}
-				// c) If the 6T code group weight is 1, and the cumulative weight bit is also 1,
-				// set the cumulative weight
-				// bit to 0, and then algebraically negate all the ternary symbol values in the
-				// 6T code group.
-				if (wordBalance == 1 && dcBalance3 == 1) {
-					dcBalance3 = 0;
-					temp3 = temp3 + inverted(CODETABLE[inputByteToInteger]);
-					continue;
+
+				@Override
+				public int code(int from, int to, int balance) {
+					return encodeGroups(data, dataStream, from, to, balance, symbols, start.length());
 				}
-			}
+			});
+		} else {
+			dcBalance = encodeGroups(data, dataStream, 0, groups, 0, symbols, start.length());
 		}
-		String[] text = new String[THREE_DATASTREAMS];
 		// After encoding any of the constants eop1-5, update the cumulative weight bit
-		// for
-		// the affected pair according to rules e) and f):
+		// for the affected pair according to rules e) and f):
 		// e) If the cumulative weight is 0, do not change the cumulative weight;
-		// algebraically negate all the ter- nary symbol values in eop1-5.
+		// algebraically negate all the ternary symbol values in eop1-5.
 		// f) If the cumulative weight is 1, do not change the cumulative weight.
-		if (dcBalance1 == 0) {
-			text[0] = temp1 + inverted(ENDOFDATASTREAM1);
-		} else {
-			text[0] = temp1 + ENDOFDATASTREAM1;
-		}
-		if (dcBalance2 == 0) {
-			text[1] = temp2 + inverted(ENDOFDATASTREAM2);
-		} else {
-			text[1] = temp2 + ENDOFDATASTREAM2;
+		EncodeTable8B6T.putEndOfStream(dataStream, dcBalance, symbols, start.length() + groups * SIZE_OF_8B6T);
+		return new String(symbols);
+	}
+
+	/**
+	 * encodes a part of one data stream
+	 *
+	 * @param data       the input which the user want to encode to 8B/6T
+	 * @param dataStream the data stream 1, 2 or 3
+	 * @param from       the first code group of the data stream
+	 * @param to         the code group after the last one
+	 * @param dcBalance  the DC balance bit before the first code group
+	 * @param symbols    the symbol buffer of the data stream
+	 * @param begin      the position of the first code group in the symbol buffer
+	 * @return the DC balance bit after the last code group
+	 */
+	private static int encodeGroups(byte[] data, int dataStream, int from, int to, int dcBalance, char[] symbols,
+			int begin) {
+		for (int i = from; i < to; i++) {
+			dcBalance = EncodeTable8B6T.put(data[dataStream - 1 + i * THREE_DATASTREAMS], dcBalance, symbols,
+					begin + i * SIZE_OF_8B6T);
 		}
+		return dcBalance;
+	}
 
-		if (dcBalance3 == 0) {
-			text[2] = temp3 + inverted(ENDOFDATASTREAM3);
-		} else {
-			text[2] = temp3 + ENDOFDATASTREAM3;
+	/**
+	 * This function encode the remaining bytes of a buffer to the 8B/6T and writes
+	 * the 3 data streams into buffers of the caller, so the same buffers can be
+	 * used again for every frame<br>
+	 * every data stream is written with start of stream delimiter, main segment
+	 * and end of stream delimiter from the position of its CharBuffer on. the
+	 * CharBuffers can be heap buffers or views of direct buffers.
+	 *
+	 * @param data  the bytes from position to limit are encoded, afterwards the
+	 *              position is the limit
+	 * @param lanes 3 CharBuffers for the first, second and third data stream
+	 * @return the number of encoded bytes
+	 * @throws BufferOverflowException if a CharBuffer has not enough space, then
+	 *                                 nothing is written
+	 */
+	public int encodeInto(ByteBuffer data, CharBuffer[] lanes) throws BufferOverflowException {
+		int length = data.remaining();
+		// check the space of all data streams before anything is written
+		for (int i = 0; i < THREE_DATASTREAMS; i++) {
+			if (lanes[i].remaining() < EncodeTable8B6T.streamLength(i + 1, length)) {
+				throw new BufferOverflowException();
+			}
 		}
-		return text;
+		for (int i = 0; i < THREE_DATASTREAMS; i++) {
+			lanes[i].put(EncodeTable8B6T.startOfStream(i + 1));
+		}
+		int[] dcBalance = new int[THREE_DATASTREAMS];
+		int begin = data.position();
+		for (int i = 0; i < length; i++) {
+			int dataStream = i % MODULO_THREE;
+			dcBalance[dataStream] = EncodeTable8B6T.put(data.get(begin + i), dcBalance[dataStream], lanes[dataStream]);
+		}
+		data.position(begin + length);
+		for (int i = 0; i < THREE_DATASTREAMS; i++) {
+			EncodeTable8B6T.putEndOfStream(i + 1, dcBalance[i], lanes[i]);
+		}
+		return length;
 	}
 
 }
\ No newline at end of file
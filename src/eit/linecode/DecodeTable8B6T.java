@@ -0,0 +1,214 @@
+package eit.linecode;
+
+import java.util.Arrays;
+
+/**
+ * This class holds the reverse index of the 8B6T decoder<br>
+ * a 6T code group consists of 6 ternary symbols, so there are 3^6 = 729
+ * possible code groups. every code group is keyed by its base-3 value<br>
+ * <li>'-' is the digit 0</li>
+ * <li>'=' is the digit 1</li>
+ * <li>'+' is the digit 2</li>
+ * the first symbol is the most significant digit. with this numbering the
+ * algebraically negated code group of a key is always 728 - key.<br>
+ * for every key and every DC balance bit the index contains the decoded byte,
+ * the DC balance bit for the next code group and whether the code group is
+ * valid at all. so the decoder only needs one array load per code group.
+ *
+ * @author Hamed Nakhei
+ */
+public class DecodeTable8B6T implements CodeInterface {
+
+	/**
+	 * is returned for code groups which are not in the 8B6T code table
+	 */
+	public static final int INVALID = -1;
+	/**
+	 * number of possible 6T code groups
+	 */
+	public static final int NUMBER_OF_CODE_GROUPS = 729;
+
+	private static final int SIZE_OF_8B6T = 6;
+	private static final int TERNARY_BASE = 3;
+	private static final int NUMBER_OF_BYTE_VALUES = 256;
+	private static final int BYTE_MASK = 0xFF;
+	private static final int BALANCE_SHIFT = 8;
+	private static final int BITS_PER_SYMBOL = 2;
+	private static final int DIGIT_MASK = 3;
+	private static final int NUMBER_OF_PACKED_GROUPS = 1 << (SIZE_OF_8B6T * BITS_PER_SYMBOL);
+
+	// index => code group, the decoded byte or INVALID
+	private static final int[] VALUES = new int[NUMBER_OF_CODE_GROUPS];
+	// index => code group, the weight of the code group (-1, 0 or 1)
+	private static final int[] WEIGHTS = new int[NUMBER_OF_CODE_GROUPS];
+	// index => dcBalance * 729 + code group, (next dcBalance << 8) | decoded byte
+	// or INVALID
+	private static final int[] STEPS = new int[2 * NUMBER_OF_CODE_GROUPS];
+	// index => 6 digits of 2 bits from a TernaryBuffer, the key of the code group or
+	// INVALID
+	private static final int[] PACKED_CODES = new int[NUMBER_OF_PACKED_GROUPS];
+
+	static {
+		Arrays.fill(VALUES, INVALID);
+		for (int value = 0; value < NUMBER_OF_BYTE_VALUES; value++) {
+			VALUES[code(CODETABLE[value], 0)] = value;
+		}
+		for (int code = 0; code < NUMBER_OF_CODE_GROUPS; code++) {
+			int weight = 0;
+			for (int rest = code, i = 0; i < SIZE_OF_8B6T; i++, rest /= TERNARY_BASE) {
+				weight += rest % TERNARY_BASE - 1;
+			}
+			WEIGHTS[code] = Integer.signum(weight);
+		}
+		// the rules of the DC balance are used to invert accordingly or remain
+		// unaffected
+		for (int dcBalance = 0; dcBalance < 2; dcBalance++) {
+			for (int code = 0; code < NUMBER_OF_CODE_GROUPS; code++) {
+				int wordWeight = WEIGHTS[code];
+				int group = code;
+				int nextBalance = 0;
+				if (wordWeight == -1 || (dcBalance == 1 && wordWeight == 1)) {
+					group = inverted(code);
+				} else if (dcBalance == 0 && wordWeight == 1) {
+					nextBalance = 1;
+				}
+				int value = VALUES[group];
+				STEPS[dcBalance * NUMBER_OF_CODE_GROUPS + code] = value == INVALID ? INVALID
+						: (nextBalance << BALANCE_SHIFT) | value;
+			}
+		}
+		for (int digits = 0; digits < NUMBER_OF_PACKED_GROUPS; digits++) {
+			int code = 0;
+			for (int i = 0; i < SIZE_OF_8B6T && code != INVALID; i++) {
+				int digit = (digits >>> (i * BITS_PER_SYMBOL)) & DIGIT_MASK;
+				code = digit == DIGIT_MASK ? INVALID : code * TERNARY_BASE + digit;
+			}
+			PACKED_CODES[digits] = code;
+		}
+	}
+
+	private DecodeTable8B6T() {
+	}
+
+	/**
+	 * converts one ternary symbol to its base-3 digit
+	 *
+	 * @param symbol '-', '=' or '+'
+	 * @return the digit 0, 1 or 2 or INVALID if the symbol is not ternary
+	 */
+	public static int digit(char symbol) {
+		switch (symbol) {
+		case '-':
+			return 0;
+		case '=':
+			return 1;
+		case '+':
+			return 2;
+		default:
+			return INVALID;
+		}
+	}
+
+	/**
+	 * calculates the key of the code group which begins at the offset
+	 *
+	 * @param symbols the data stream
+	 * @param offset  the position where the code group begins
+	 * @return the base-3 value of the 6 symbols or INVALID if one of them is not
+	 *         ternary
+	 */
+	public static int code(CharSequence symbols, int offset) {
+		int code = 0;
+		for (int i = offset; i < offset + SIZE_OF_8B6T; i++) {
+			int digit = digit(symbols.charAt(i));
+			if (digit == INVALID) {
+				return INVALID;
+			}
+			code = code * TERNARY_BASE + digit;
+		}
+		return code;
+	}
+
+	/**
+	 * calculates the key of the code group which begins at the offset
+	 *
+	 * @param symbols the array with the data stream
+	 * @param offset  the position where the code group begins
+	 * @return the base-3 value of the 6 symbols or INVALID if one of them is not
+	 *         ternary
+	 */
+	public static int code(char[] symbols, int offset) {
+		int code = 0;
+		for (int i = offset; i < offset + SIZE_OF_8B6T; i++) {
+			int digit = digit(symbols[i]);
+			if (digit == INVALID) {
+				return INVALID;
+			}
+			code = code * TERNARY_BASE + digit;
+		}
+		return code;
+	}
+
+	/**
+	 * calculates the key of a code group which is read from a packed data stream
+	 *
+	 * @param digits the 6 digits of 2 bits from
+	 *               {@link TernaryBuffer#getDigits(int, int)}
+	 * @return the base-3 value of the 6 symbols or INVALID
+	 */
+	public static int packedCode(long digits) {
+		return PACKED_CODES[(int) digits];
+	}
+
+	/**
+	 * gives the key of the algebraically negated code group
+	 *
+	 * @param code the key of the code group
+	 * @return the key of the inverted code group
+	 */
+	public static int inverted(int code) {
+		return NUMBER_OF_CODE_GROUPS - 1 - code;
+	}
+
+	/**
+	 * gives the weight of a code group
+	 *
+	 * @param code the key of the code group
+	 * @return -1, 0 or 1
+	 */
+	public static int weight(int code) {
+		return WEIGHTS[code];
+	}
+
+	/**
+	 * decodes one code group of a data stream
+	 *
+	 * @param code      the key of the received code group
+	 * @param dcBalance the current DC balance bit of the data stream
+	 * @return (next DC balance bit &lt;&lt; 8) | decoded byte, or INVALID if the code
+	 *         group is not in the 8B6T code table
+	 */
+	public static int step(int code, int dcBalance) {
+		return STEPS[dcBalance * NUMBER_OF_CODE_GROUPS + code];
+	}
+
+	/**
+	 * extracts the decoded byte of a step
+	 *
+	 * @param step the result of {@link #step(int, int)}
+	 * @return the decoded byte
+	 */
+	public static byte value(int step) {
+		return (byte) (step & BYTE_MASK);
+	}
+
+	/**
+	 * extracts the next DC balance bit of a step
+	 *
+	 * @param step the result of {@link #step(int, int)}
+	 * @return the DC balance bit for the next code group
+	 */
+	public static int nextBalance(int step) {
+		return step >>> BALANCE_SHIFT;
+	}
+}
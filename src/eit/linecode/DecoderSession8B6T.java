@@ -0,0 +1,259 @@
+package eit.linecode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import eit.linecode.exception.DecodeException;
+import eit.linecode.exception.EndOfPacketException;
+import eit.linecode.exception.StartOfStreamException;
+
+/**
+ * This class decodes three 8B6T data streams which arrive piece by piece<br>
+ * the symbols of every data stream can be passed in chunks of any size, for
+ * example the chunks of an {@link EncoderSession8B6T}. the session checks
+ * everything which {@link DataDecoder8B6T#decode(String[])} checks, but as soon
+ * as possible:
+ * <li>the start of stream delimiter is checked symbol by symbol</li>
+ * <li>every complete code group is decoded with the DC balance bit of its data
+ * stream</li>
+ * <li>the decoded bytes are written in the original order as soon as every
+ * data stream has decoded its next byte</li>
+ * <li>the end of stream delimiters are checked by finish</li>
+ * the last symbols of every data stream are held back, because they can be
+ * the end of stream delimiter. all other symbols are decoded right away, so the
+ * whole frame is never held in memory.
+ *
+ * @author Hamed Nakhei
+ */
+public class DecoderSession8B6T implements CodeInterface {
+
+	private static final int SIZE_OF_8B6T = 6;
+	private static final int THREE_DATASTREAMS = 3;
+	private static final int INITIAL_CAPACITY = 64;
+	private static final int OUTPUT_BUFFER_SIZE = 4096;
+
+	/**
+	 * the state of one data stream
+	 */
+	private static class Lane {
+		private final String startOfStream;
+		private final String endOfStream;
+		private final String invertedEndOfStream;
+		// number of symbols of the start of stream delimiter which are checked
+		private int started = 0;
+		// symbols which are not decoded yet, from head to tail
+		private char[] symbols = new char[INITIAL_CAPACITY];
+		private int head = 0;
+		private int tail = 0;
+		private int dcBalance = 0;
+		private long groups = 0;
+		// decoded bytes which are not written yet, a ring buffer
+		private byte[] decoded = new byte[INITIAL_CAPACITY];
+		private int first = 0;
+		private int count = 0;
+
+		Lane(String startOfStream, String endOfStream) {
+			this.startOfStream = startOfStream;
+			this.endOfStream = endOfStream;
+			this.invertedEndOfStream = Functions.inverted(endOfStream);
+		}
+
+		private int pending() {
+			return tail - head;
+		}
+
+		private void append(char symbol) {
+			if (tail == symbols.length) {
+				if (head > 0) {
+					System.arraycopy(symbols, head, symbols, 0, tail - head);
+					tail -= head;
+					head = 0;
+				}
+				if (tail == symbols.length) {
+					symbols = Arrays.copyOf(symbols, symbols.length * 2);
+				}
+			}
+			symbols[tail++] = symbol;
+		}
+
+		private void push(byte value) {
+			if (count == decoded.length) {
+				byte[] larger = new byte[decoded.length * 2];
+				for (int i = 0; i < count; i++) {
+					larger[i] = decoded[(first + i) % decoded.length];
+				}
+				decoded = larger;
+				first = 0;
+			}
+			decoded[(first + count) % decoded.length] = value;
+			count++;
+		}
+
+		private byte pop() {
+			byte value = decoded[first];
+			first = (first + 1) % decoded.length;
+			count--;
+			return value;
+		}
+
+		private boolean endsWith(String end) {
+			for (int i = 0; i < end.length(); i++) {
+				if (symbols[tail - end.length() + i] != end.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private final OutputStream out;
+	private final Lane[] lanes = { new Lane(STARTOFDATASTREAM1, ENDOFDATASTREAM1),
+			new Lane(STARTOFDATASTREAM2, ENDOFDATASTREAM2), new Lane(STARTOFDATASTREAM3, ENDOFDATASTREAM3) };
+	private final byte[] output = new byte[OUTPUT_BUFFER_SIZE];
+	private int outputLength = 0;
+	// the data stream of the next byte in the original order, 0, 1 or 2
+	private int nextDataStream = 0;
+	private boolean finished = false;
+
+	/**
+	 * is the standard constructor
+	 *
+	 * @param out the decoded bytes are written to this stream in the original
+	 *            order
+	 */
+	public DecoderSession8B6T(OutputStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * takes the next chunk of all three data streams, for example one element of
+	 * a Line which was filled by an encoder session
+	 *
+	 * @param chunk the next symbols of the first, second and third data stream
+	 * @throws StartOfStreamException if something is wrong with the start of stream
+	 *                                delimiter
+	 * @throws DecodeException        if a code group is not in the 8B6T code table
+	 * @throws IOException            if the decoded bytes cannot be written
+	 */
+	public void accept(String[] chunk) throws StartOfStreamException, DecodeException, IOException {
+		for (int i = 0; i < THREE_DATASTREAMS; i++) {
+			accept(i + 1, chunk[i]);
+		}
+	}
+
+	/**
+	 * takes the next symbols of one data stream
+	 *
+	 * @param dataStream the data stream 1, 2 or 3
+	 * @param symbols    the next symbols of the data stream
+	 * @throws StartOfStreamException if something is wrong with the start of stream
+	 *                                delimiter
+	 * @throws DecodeException        if a code group is not in the 8B6T code table
+	 * @throws IOException            if the decoded bytes cannot be written
+	 */
+	public void accept(int dataStream, CharSequence symbols)
+			throws StartOfStreamException, DecodeException, IOException {
+		if (finished) {
+			throw new DecodeException("Session is finished!!!");
+		}
+		Lane lane = lanes[dataStream - 1];
+		for (int i = 0; i < symbols.length(); i++) {
+			char symbol = symbols.charAt(i);
+			// Check start of data streams delimiter
+			if (lane.started < lane.startOfStream.length()) {
+				if (symbol != lane.startOfStream.charAt(lane.started)) {
+					throw new StartOfStreamException("Start of Stream " + dataStream + " is incorrect!!!");
+				}
+				lane.started++;
+				continue;
+			}
+			lane.append(symbol);
+			// the last symbols can be the end of stream delimiter, so they are held back
+			if (lane.pending() == lane.endOfStream.length() + SIZE_OF_8B6T) {
+				decodeGroup(lane);
+			}
+		}
+		writeDecoded();
+		flushOutput();
+	}
+
+	private void decodeGroup(Lane lane) {
+		int code = DecodeTable8B6T.code(lane.symbols, lane.head);
+		int step = code == DecodeTable8B6T.INVALID ? DecodeTable8B6T.INVALID
+				: DecodeTable8B6T.step(code, lane.dcBalance);
+		if (step == DecodeTable8B6T.INVALID) {
+			throw new DecodeException("Wrong code group!!!");
+		}
+		lane.push(DecodeTable8B6T.value(step));
+		lane.dcBalance = DecodeTable8B6T.nextBalance(step);
+		lane.head += SIZE_OF_8B6T;
+		lane.groups++;
+	}
+
+	/**
+	 * the decoded bytes are taken from the data streams in the order in which the
+	 * encoder dealt them, as long as the next data stream has a decoded byte
+	 */
+	private void writeDecoded() throws IOException {
+		while (lanes[nextDataStream].count > 0) {
+			if (outputLength == output.length) {
+				flushOutput();
+			}
+			output[outputLength++] = lanes[nextDataStream].pop();
+			nextDataStream = nextDataStream == THREE_DATASTREAMS - 1 ? 0 : nextDataStream + 1;
+		}
+	}
+
+	private void flushOutput() throws IOException {
+		if (outputLength > 0) {
+			out.write(output, 0, outputLength);
+			outputLength = 0;
+		}
+	}
+
+	/**
+	 * checks the end of all data streams after the last chunk and writes the last
+	 * decoded bytes
+	 *
+	 * @throws EndOfPacketException if something is wrong with the end of stream
+	 *                              delimiter
+	 * @throws DecodeException      if a data stream is too short or the sizes of
+	 *                              the data streams do not fit together
+	 * @throws IOException          if the decoded bytes cannot be written
+	 */
+	public void finish() throws EndOfPacketException, DecodeException, IOException {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		for (int i = 0; i < THREE_DATASTREAMS; i++) {
+			Lane lane = lanes[i];
+			if (lane.started < lane.startOfStream.length() || lane.pending() < lane.endOfStream.length()) {
+				throw new DecodeException("Wrong data size!!!");
+			}
+		}
+		// end of data stream delimiter can be sent as it is or inverted
+		for (int i = 0; i < THREE_DATASTREAMS; i++) {
+			Lane lane = lanes[i];
+			if (!lane.endsWith(lane.endOfStream) && !lane.endsWith(lane.invertedEndOfStream)) {
+				throw new EndOfPacketException("End of Stream " + (i + 1) + " is incorrect!!!");
+			}
+		}
+		for (int i = 0; i < THREE_DATASTREAMS; i++) {
+			if (lanes[i].pending() != lanes[i].endOfStream.length()) {
+				throw new DecodeException("Wrong data size!!!");
+			}
+		}
+		// the first data stream must contain at least one code group and the bytes are
+		// dealt round-robin, so the first data stream has at most one byte more
+		long first = lanes[0].groups;
+		long second = lanes[1].groups;
+		long third = lanes[2].groups;
+		if (first == 0 || first < second || second < third || third < first - 1) {
+			throw new DecodeException("Wrong data size!!!");
+		}
+		writeDecoded();
+		flushOutput();
+		out.flush();
+	}
+}
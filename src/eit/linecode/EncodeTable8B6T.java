@@ -0,0 +1,261 @@
+package eit.linecode;
+
+import java.nio.CharBuffer;
+
+/**
+ * This class holds the precomputed lookup tables of the 8B6T encoder<br>
+ * every entry is indexed by the byte value and the DC balance bit of the data
+ * stream and gives the 6T code group which has to be written and the DC balance
+ * bit for the next code group.<br>
+ * the tables are built once from the 23A 1a 100BASE T4 8B6T code table with the
+ * DC balance encoding rules:
+ * <li>a) If the 6T code group weight is 0, do not change the cumulative
+ * weight.</li>
+ * <li>b) If the 6T code group weight is 1, and the cumulative weight bit is 0,
+ * set the cumulative weight bit to 1.</li>
+ * <li>c) If the 6T code group weight is 1, and the cumulative weight bit is
+ * also 1, set the cumulative weight bit to 0, and then algebraically negate all
+ * the ternary symbol values in the 6T code group.</li>
+ * so the encoder only has to copy 6 symbols per byte and does not create any
+ * object.
+ *
+ * @author Hamed Nakhei
+ */
+public class EncodeTable8B6T implements CodeInterface {
+
+	private static final int SIZE_OF_8B6T = 6;
+	private static final int NUMBER_OF_BYTE_VALUES = 256;
+	private static final int BYTE_MASK = 0xFF;
+	private static final int BALANCE_SHIFT = 8;
+	private static final int THREE_DATASTREAMS = 3;
+
+	// index => (dcBalance << 8) | byte value
+	private static final char[][] GROUPS = new char[2 * NUMBER_OF_BYTE_VALUES][];
+	private static final int[] NEXT_BALANCE = new int[2 * NUMBER_OF_BYTE_VALUES];
+	// index => dcBalance, the end of stream delimiter of each data stream
+	private static final char[][] END_OF_STREAM1 = new char[2][];
+	private static final char[][] END_OF_STREAM2 = new char[2][];
+	private static final char[][] END_OF_STREAM3 = new char[2][];
+	// the same tables for the packed form, every code group as 6 digits of 2 bits
+	private static final long[] PACKED_GROUPS = new long[2 * NUMBER_OF_BYTE_VALUES];
+	private static final TernaryBuffer[][] PACKED_END_OF_STREAM = new TernaryBuffer[THREE_DATASTREAMS][2];
+	private static final TernaryBuffer[] PACKED_START_OF_STREAM = new TernaryBuffer[THREE_DATASTREAMS];
+
+	static {
+		Functions functions = new Functions();
+		for (int value = 0; value < NUMBER_OF_BYTE_VALUES; value++) {
+			String code = CODETABLE[value];
+			int wordBalance = functions.cumulativeWeight(code);
+			for (int dcBalance = 0; dcBalance < 2; dcBalance++) {
+				int index = index(value, dcBalance);
+				if (wordBalance == 1 && dcBalance == 1) {
+					// rule c)
+					GROUPS[index] = Functions.inverted(code).toCharArray();
+					NEXT_BALANCE[index] = 0;
+				} else if (wordBalance == 1) {
+					// rule b)
+					GROUPS[index] = code.toCharArray();
+					NEXT_BALANCE[index] = 1;
+				} else {
+					// rule a)
+					GROUPS[index] = code.toCharArray();
+					NEXT_BALANCE[index] = dcBalance;
+				}
+			}
+		}
+		// e) If the cumulative weight is 0, algebraically negate all the ternary
+		// symbol values in eop1-5.
+		// f) If the cumulative weight is 1, do not change the cumulative weight.
+		END_OF_STREAM1[0] = Functions.inverted(ENDOFDATASTREAM1).toCharArray();
+		END_OF_STREAM1[1] = ENDOFDATASTREAM1.toCharArray();
+		END_OF_STREAM2[0] = Functions.inverted(ENDOFDATASTREAM2).toCharArray();
+		END_OF_STREAM2[1] = ENDOFDATASTREAM2.toCharArray();
+		END_OF_STREAM3[0] = Functions.inverted(ENDOFDATASTREAM3).toCharArray();
+		END_OF_STREAM3[1] = ENDOFDATASTREAM3.toCharArray();
+
+		for (int index = 0; index < GROUPS.length; index++) {
+			PACKED_GROUPS[index] = TernaryBuffer.valueOf(new String(GROUPS[index])).getDigits(0, SIZE_OF_8B6T);
+		}
+		for (int dataStream = 1; dataStream <= THREE_DATASTREAMS; dataStream++) {
+			PACKED_START_OF_STREAM[dataStream - 1] = TernaryBuffer.valueOf(startOfStream(dataStream));
+			for (int dcBalance = 0; dcBalance < 2; dcBalance++) {
+				PACKED_END_OF_STREAM[dataStream - 1][dcBalance] = TernaryBuffer
+						.valueOf(new String(endOfStream(dataStream)[dcBalance]));
+			}
+		}
+	}
+
+	private EncodeTable8B6T() {
+	}
+
+	/**
+	 * calculates the index of a table entry
+	 *
+	 * @param value     the byte value from 0 to 255
+	 * @param dcBalance the DC balance bit of the data stream (0 or 1)
+	 * @return the index of the entry in the tables
+	 */
+	private static int index(int value, int dcBalance) {
+		return (dcBalance << BALANCE_SHIFT) | value;
+	}
+
+	/**
+	 * writes the 6T code group of one byte into the destination array
+	 *
+	 * @param data      the byte which we want to encode
+	 * @param dcBalance the current DC balance bit of the data stream
+	 * @param dest      the symbol buffer of the data stream
+	 * @param offset    the position in dest where the code group begins
+	 * @return the DC balance bit for the next code group of the data stream
+	 */
+	public static int put(byte data, int dcBalance, char[] dest, int offset) {
+		int index = index(data & BYTE_MASK, dcBalance);
+		System.arraycopy(GROUPS[index], 0, dest, offset, SIZE_OF_8B6T);
+		return NEXT_BALANCE[index];
+	}
+
+	/**
+	 * writes the 6T code group of one byte to the position of a CharBuffer
+	 *
+	 * @param data      the byte which we want to encode
+	 * @param dcBalance the current DC balance bit of the data stream
+	 * @param dest      the symbol buffer of the data stream
+	 * @return the DC balance bit for the next code group of the data stream
+	 */
+	public static int put(byte data, int dcBalance, CharBuffer dest) {
+		int index = index(data & BYTE_MASK, dcBalance);
+		dest.put(GROUPS[index]);
+		return NEXT_BALANCE[index];
+	}
+
+	/**
+	 * writes the end of stream delimiter of a data stream to the position of a
+	 * CharBuffer
+	 *
+	 * @param dataStream the data stream 1, 2 or 3
+	 * @param dcBalance  the DC balance bit of the data stream after the last code
+	 *                   group
+	 * @param dest       the symbol buffer of the data stream
+	 */
+	public static void putEndOfStream(int dataStream, int dcBalance, CharBuffer dest) {
+		dest.put(endOfStream(dataStream)[dcBalance]);
+	}
+
+	/**
+	 * gives only the DC balance bit after one byte without writing its code group
+	 *
+	 * @param data      the byte which we want to encode
+	 * @param dcBalance the current DC balance bit of the data stream
+	 * @return the DC balance bit for the next code group of the data stream
+	 */
+	public static int nextBalance(byte data, int dcBalance) {
+		return NEXT_BALANCE[index(data & BYTE_MASK, dcBalance)];
+	}
+
+	/**
+	 * appends the 6T code group of one byte to a packed data stream
+	 *
+	 * @param data      the byte which we want to encode
+	 * @param dcBalance the current DC balance bit of the data stream
+	 * @param dest      the packed data stream
+	 * @return the DC balance bit for the next code group of the data stream
+	 */
+	public static int put(byte data, int dcBalance, TernaryBuffer dest) {
+		int index = index(data & BYTE_MASK, dcBalance);
+		dest.appendDigits(PACKED_GROUPS[index], SIZE_OF_8B6T);
+		return NEXT_BALANCE[index];
+	}
+
+	/**
+	 * appends the start of stream delimiter of a data stream to a packed data
+	 * stream
+	 *
+	 * @param dataStream the data stream 1, 2 or 3
+	 * @param dest       the packed data stream
+	 */
+	public static void putStartOfStream(int dataStream, TernaryBuffer dest) {
+		dest.append(PACKED_START_OF_STREAM[dataStream - 1]);
+	}
+
+	/**
+	 * appends the end of stream delimiter of a data stream to a packed data stream
+	 *
+	 * @param dataStream the data stream 1, 2 or 3
+	 * @param dcBalance  the DC balance bit of the data stream after the last code
+	 *                   group
+	 * @param dest       the packed data stream
+	 */
+	public static void putEndOfStream(int dataStream, int dcBalance, TernaryBuffer dest) {
+		dest.append(PACKED_END_OF_STREAM[dataStream - 1][dcBalance]);
+	}
+
+	/**
+	 * writes the end of stream delimiter of a data stream into the destination
+	 * array
+	 *
+	 * @param dataStream the data stream 1, 2 or 3
+	 * @param dcBalance  the DC balance bit of the data stream after the last code
+	 *                   group
+	 * @param dest       the symbol buffer of the data stream
+	 * @param offset     the position in dest where the delimiter begins
+	 * @return the number of written symbols
+	 */
+	public static int putEndOfStream(int dataStream, int dcBalance, char[] dest, int offset) {
+		char[] end = endOfStream(dataStream)[dcBalance];
+		System.arraycopy(end, 0, dest, offset, end.length);
+		return end.length;
+	}
+
+	/**
+	 * calculates how many symbols a data stream needs
+	 *
+	 * @param dataStream the data stream 1, 2 or 3
+	 * @param length     the number of bytes which are encoded
+	 * @return the size of start of stream delimiter, main segment and end of stream
+	 *         delimiter together
+	 */
+	public static int streamLength(int dataStream, int length) {
+		return startOfStream(dataStream).length() + groupCount(dataStream, length) * SIZE_OF_8B6T
+				+ endOfStream(dataStream)[0].length;
+	}
+
+	/**
+	 * calculates how many bytes of the data are encoded in a data stream. the bytes
+	 * are dealt round-robin to the three data streams.
+	 *
+	 * @param dataStream the data stream 1, 2 or 3
+	 * @param length     the number of bytes which are encoded
+	 * @return the number of 6T code groups in the data stream
+	 */
+	public static int groupCount(int dataStream, int length) {
+		return (length - dataStream + THREE_DATASTREAMS) / THREE_DATASTREAMS;
+	}
+
+	/**
+	 * gives the start of stream delimiter of a data stream
+	 *
+	 * @param dataStream the data stream 1, 2 or 3
+	 * @return the start of stream delimiter
+	 */
+	public static String startOfStream(int dataStream) {
+		switch (dataStream) {
+		case 1:
+			return STARTOFDATASTREAM1;
+		case 2:
+			return STARTOFDATASTREAM2;
+		default:
+			return STARTOFDATASTREAM3;
+		}
+	}
+
+	private static char[][] endOfStream(int dataStream) {
+		switch (dataStream) {
+		case 1:
+			return END_OF_STREAM1;
+		case 2:
+			return END_OF_STREAM2;
+		default:
+			return END_OF_STREAM3;
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package eit.linecode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * This class encodes a data stream of any size in 8B6T piece by piece<br>
+ * the bytes can be written in chunks of any size. the session keeps the data
+ * stream for the next byte and the DC balance bit of every data stream, so the
+ * result is the same as {@link DataEncoder8B6T#encode(byte[])} of all written
+ * bytes together.<br>
+ * the encoded symbols are collected in a small buffer for every data stream
+ * and handed to a {@link SymbolSink} as soon as a buffer is full. so the
+ * memory of the session does not depend on the size of the data.
+ * <li>the start of stream delimiters are written at the beginning</li>
+ * <li>the end of stream delimiters are written by close</li>
+ * the session is an OutputStream and a WritableByteChannel, so it can be used
+ * with the usual copy methods of java.io and java.nio.
+ *
+ * @author Hamed Nakhei
+ */
+public class EncoderSession8B6T extends OutputStream implements WritableByteChannel {
+
+	/**
+	 * the default number of symbols which are collected for every data stream
+	 * before they are handed to the sink
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 6 * 1024;
+
+	private static final int SIZE_OF_8B6T = 6;
+	private static final int THREE_DATASTREAMS = 3;
+	// the buffer must hold the start or end of stream delimiter and one code group
+	private static final int MIN_BUFFER_SIZE = 32;
+
+	private final SymbolSink sink;
+	private final char[][] buffers;
+	private final int[] positions = new int[THREE_DATASTREAMS];
+	private final int[] dcBalance = new int[THREE_DATASTREAMS];
+	// the data stream for the next byte, 0, 1 or 2
+	private int nextDataStream = 0;
+	private boolean closed = false;
+
+	/**
+	 * is the standard constructor
+	 *
+	 * @param sink the sink for the encoded symbols
+	 */
+	public EncoderSession8B6T(SymbolSink sink) {
+		this(sink, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * creates a session with a given buffer size
+	 *
+	 * @param sink       the sink for the encoded symbols
+	 * @param bufferSize the number of symbols which are collected for every data
+	 *                   stream before they are handed to the sink
+	 */
+	public EncoderSession8B6T(SymbolSink sink, int bufferSize) {
+		this.sink = sink;
+		this.buffers = new char[THREE_DATASTREAMS][Math.max(bufferSize, MIN_BUFFER_SIZE)];
+		for (int i = 0; i < THREE_DATASTREAMS; i++) {
+			String start = EncodeTable8B6T.startOfStream(i + 1);
+			start.getChars(0, start.length(), buffers[i], 0);
+			positions[i] = start.length();
+		}
+	}
+
+	/**
+	 * encodes one byte
+	 *
+	 * @param b the byte in the lowest 8 bits
+	 * @throws IOException if the session is closed or the sink fails
+	 */
+	@Override
+	public void write(int b) throws IOException {
+		ensureOpen();
+		put((byte) b);
+	}
+
+	/**
+	 * encodes a part of a byte array
+	 *
+	 * @param data   the bytes which we want to encode
+	 * @param offset the position of the first byte
+	 * @param length the number of bytes
+	 * @throws IOException if the session is closed or the sink fails
+	 */
+	@Override
+	public void write(byte[] data, int offset, int length) throws IOException {
+		ensureOpen();
+		if (offset < 0 || length < 0 || offset + length > data.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		for (int i = offset; i < offset + length; i++) {
+			put(data[i]);
+		}
+	}
+
+	/**
+	 * encodes all remaining bytes of the buffer
+	 *
+	 * @param src the bytes which we want to encode
+	 * @return the number of encoded bytes
+	 * @throws IOException if the session is closed or the sink fails
+	 */
+	@Override
+	public int write(ByteBuffer src) throws IOException {
+		if (closed) {
+			throw new ClosedChannelException();
+		}
+		int count = src.remaining();
+		while (src.hasRemaining()) {
+			put(src.get());
+		}
+		return count;
+	}
+
+	private void put(byte data) throws IOException {
+		int dataStream = nextDataStream;
+		if (positions[dataStream] + SIZE_OF_8B6T > buffers[dataStream].length) {
+			flushBuffers();
+		}
+		dcBalance[dataStream] = EncodeTable8B6T.put(data, dcBalance[dataStream], buffers[dataStream],
+				positions[dataStream]);
+		positions[dataStream] += SIZE_OF_8B6T;
+		nextDataStream = dataStream == THREE_DATASTREAMS - 1 ? 0 : dataStream + 1;
+	}
+
+	/**
+	 * hands all collected symbols to the sink as one chunk
+	 *
+	 * @throws IOException if the session is closed or the sink fails
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		flushBuffers();
+	}
+
+	private void flushBuffers() throws IOException {
+		for (int i = 0; i < THREE_DATASTREAMS; i++) {
+			if (positions[i] > 0) {
+				sink.write(i + 1, buffers[i], 0, positions[i]);
+				positions[i] = 0;
+			}
+		}
+		sink.flush();
+	}
+
+	@Override
+	public boolean isOpen() {
+		return !closed;
+	}
+
+	/**
+	 * writes the end of stream delimiters according to the DC balance bits, hands
+	 * the last chunk to the sink and closes the sink
+	 *
+	 * @throws IOException if the sink fails
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		for (int i = 0; i < THREE_DATASTREAMS; i++) {
+			if (positions[i] + MIN_BUFFER_SIZE > buffers[i].length) {
+				flushBuffers();
+			}
+			positions[i] += EncodeTable8B6T.putEndOfStream(i + 1, dcBalance[i], buffers[i], positions[i]);
+		}
+		flushBuffers();
+		sink.close();
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Session is closed!!!");
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package eit.linecode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * This class splits one data stream into chunks which are encoded or decoded on
+ * many cores<br>
+ * the only state which is carried from one code group to the next is the DC
+ * balance bit. so the effect of a chunk is a function from the DC balance bit
+ * at its beginning to the DC balance bit at its end. this function is stored in
+ * 2 bits: bit 0 is the result for 0 and bit 1 is the result for 1.<br>
+ * the data stream is coded in three steps:
+ * <li>every chunk runs its code groups from both DC balance bits at once and
+ * returns its function (in parallel)</li>
+ * <li>a prefix scan over the functions gives the DC balance bit at the
+ * beginning of every chunk</li>
+ * <li>every chunk is coded from its correct DC balance bit (in parallel)</li>
+ * the methods must be called from a task of a ForkJoinPool.
+ *
+ * @author Hamed Nakhei
+ */
+class ParallelLane {
+
+	/**
+	 * the part of the encoder or decoder which works on the code groups of one data
+	 * stream
+	 */
+	interface Coder {
+
+		/**
+		 * runs the code groups from both DC balance bits at once
+		 *
+		 * @param from the first code group
+		 * @param to   the code group after the last one
+		 * @return the function of the chunk, see {@link ParallelLane}
+		 */
+		int transition(int from, int to);
+
+		/**
+		 * codes the code groups
+		 *
+		 * @param from      the first code group
+		 * @param to        the code group after the last one
+		 * @param dcBalance the DC balance bit before the first code group
+		 * @return the DC balance bit after the last code group
+		 */
+		int code(int from, int to, int dcBalance);
+	}
+
+	private ParallelLane() {
+	}
+
+	/**
+	 * builds the function of a chunk from its results
+	 *
+	 * @param fromZero the DC balance bit at the end if the chunk starts with 0
+	 * @param fromOne  the DC balance bit at the end if the chunk starts with 1
+	 * @return the function of the chunk
+	 */
+	static int transition(int fromZero, int fromOne) {
+		return fromZero | (fromOne << 1);
+	}
+
+	/**
+	 * applies the function of a chunk
+	 *
+	 * @param transition the function of the chunk
+	 * @param dcBalance  the DC balance bit at the beginning of the chunk
+	 * @return the DC balance bit at the end of the chunk
+	 */
+	static int apply(int transition, int dcBalance) {
+		return (transition >>> dcBalance) & 1;
+	}
+
+	/**
+	 * codes all code groups of a data stream in chunks
+	 *
+	 * @param groups    the number of code groups in the data stream
+	 * @param chunkSize the number of code groups in one chunk
+	 * @param coder     the encoder or decoder of the data stream
+	 * @return the DC balance bit after the last code group
+	 */
+	static int code(int groups, int chunkSize, Coder coder) {
+		int chunks = (groups + chunkSize - 1) / chunkSize;
+		int[] transitions = new int[chunks];
+		List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(chunks);
+		for (int k = 0; k < chunks; k++) {
+			int chunk = k;
+			tasks.add(ForkJoinTask.adapt(() -> {
+				transitions[chunk] = coder.transition(chunk * chunkSize, Math.min(groups, (chunk + 1) * chunkSize));
+			}));
+		}
+		ForkJoinTask.invokeAll(tasks);
+
+		// prefix scan, the first chunk always starts with the DC balance bit 0
+		int[] starts = new int[chunks];
+		for (int k = 1; k < chunks; k++) {
+			starts[k] = apply(transitions[k - 1], starts[k - 1]);
+		}
+
+		tasks.clear();
+		for (int k = 0; k < chunks; k++) {
+			int chunk = k;
+			tasks.add(ForkJoinTask.adapt(() -> {
+				coder.code(chunk * chunkSize, Math.min(groups, (chunk + 1) * chunkSize), starts[chunk]);
+			}));
+		}
+		ForkJoinTask.invokeAll(tasks);
+		return chunks == 0 ? 0 : apply(transitions[chunks - 1], starts[chunks - 1]);
+	}
+}
@@ -0,0 +1,46 @@
+package eit.linecode;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * With this interface, an {@link EncoderSession8B6T} hands the encoded symbols
+ * of the three data streams to the place where they are needed<br>
+ * the symbols arrive in chunks. after the symbols of one chunk are written for
+ * all data streams, flush is called, so a sink can pass the chunk on as a
+ * whole.
+ *
+ * @author Hamed Nakhei
+ */
+public interface SymbolSink extends Flushable, Closeable {
+
+	/**
+	 * takes the next symbols of one data stream
+	 *
+	 * @param dataStream the data stream 1, 2 or 3
+	 * @param symbols    the array with the symbols '+', '-' and '='
+	 * @param offset     the position of the first symbol
+	 * @param length     the number of symbols
+	 * @throws IOException if the symbols cannot be written
+	 */
+	void write(int dataStream, char[] symbols, int offset, int length) throws IOException;
+
+	/**
+	 * is called after every chunk of all three data streams
+	 *
+	 * @throws IOException if the chunk cannot be passed on
+	 */
+	@Override
+	default void flush() throws IOException {
+	}
+
+	/**
+	 * is called after the end of stream delimiters are written
+	 *
+	 * @throws IOException if the sink cannot be closed
+	 */
+	@Override
+	default void close() throws IOException {
+	}
+}
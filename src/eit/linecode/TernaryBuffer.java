@@ -0,0 +1,464 @@
+package eit.linecode;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import eit.linecode.exception.DecodeException;
+
+/**
+ * This class stores a data stream of ternary symbols in packed form<br>
+ * every symbol needs only 2 bits, so 32 symbols are stored in one long. a
+ * String of '+', '-' and '=' needs at least one byte per symbol plus the
+ * header of the String object, so this buffer needs about 4 times less
+ * memory.<br>
+ * the symbols are stored as the digits which are also used by
+ * {@link DecodeTable8B6T}:
+ * <li>'-' is the digit 0</li>
+ * <li>'=' is the digit 1</li>
+ * <li>'+' is the digit 2</li>
+ * the buffer grows automatically. all bulk operations work on whole machine
+ * words instead of single symbols. the String form, which is used in the
+ * command line, is available with {@link #valueOf(CharSequence)} and
+ * {@link #toString()}.
+ *
+ * @author Hamed Nakhei
+ */
+public class TernaryBuffer implements CharSequence, Comparable<TernaryBuffer> {
+
+	/**
+	 * number of symbols which are stored in one long
+	 */
+	public static final int SYMBOLS_PER_WORD = 32;
+
+	private static final int BITS_PER_SYMBOL = 2;
+	private static final int WORD_SHIFT = 5;
+	private static final int INDEX_MASK = SYMBOLS_PER_WORD - 1;
+	private static final int BITS_PER_WORD = 64;
+	private static final long DIGIT_MASK = 3L;
+	private static final int DEFAULT_CAPACITY = 64;
+	private static final char[] SYMBOLS = { '-', '=', '+' };
+	private static final int BYTES_PER_WORD = 8;
+	// the low bit of every symbol, a symbol is 3 if both of its bits are set
+	private static final long LOW_BITS = 0x5555555555555555L;
+
+	private long[] words;
+	private int length;
+
+	/**
+	 * is the standard constructor and creates an empty buffer
+	 */
+	public TernaryBuffer() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * creates an empty buffer which can hold the given number of symbols without
+	 * growing
+	 *
+	 * @param capacity the number of symbols
+	 */
+	public TernaryBuffer(int capacity) {
+		this.words = new long[wordCount(Math.max(capacity, 1))];
+	}
+
+	/**
+	 * converts the String form of a data stream to a packed buffer
+	 *
+	 * @param symbols the data stream which consists of '+', '-' and '='
+	 * @return the packed data stream
+	 * @throws DecodeException if the data stream contains another character
+	 */
+	public static TernaryBuffer valueOf(CharSequence symbols) throws DecodeException {
+		TernaryBuffer buffer = new TernaryBuffer(symbols.length());
+		buffer.append(symbols);
+		return buffer;
+	}
+
+	private static int wordCount(int symbols) {
+		return (symbols + INDEX_MASK) >>> WORD_SHIFT;
+	}
+
+	private void ensureCapacity(int symbols) {
+		int needed = wordCount(symbols);
+		if (needed > words.length) {
+			words = Arrays.copyOf(words, Math.max(needed, words.length * 2));
+		}
+	}
+
+	/**
+	 * @return the number of symbols in the buffer
+	 */
+	@Override
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * gives the digit of one symbol
+	 *
+	 * @param index the position of the symbol
+	 * @return 0 for '-', 1 for '=' and 2 for '+'
+	 */
+	public int get(int index) {
+		checkIndex(index, 1);
+		return (int) ((words[index >>> WORD_SHIFT] >>> ((index & INDEX_MASK) * BITS_PER_SYMBOL)) & DIGIT_MASK);
+	}
+
+	@Override
+	public char charAt(int index) {
+		return SYMBOLS[get(index)];
+	}
+
+	/**
+	 * reads up to 32 symbols at once
+	 *
+	 * @param index the position of the first symbol
+	 * @param count the number of symbols, at most 32
+	 * @return the digits of the symbols, 2 bits each, the first symbol in the
+	 *         lowest bits
+	 */
+	public long getDigits(int index, int count) {
+		checkIndex(index, count);
+		int word = index >>> WORD_SHIFT;
+		int bit = (index & INDEX_MASK) * BITS_PER_SYMBOL;
+		long digits = words[word] >>> bit;
+		if (bit + count * BITS_PER_SYMBOL > BITS_PER_WORD) {
+			digits |= words[word + 1] << (BITS_PER_WORD - bit);
+		}
+		if (count == SYMBOLS_PER_WORD) {
+			return digits;
+		}
+		return digits & ((1L << (count * BITS_PER_SYMBOL)) - 1);
+	}
+
+	/**
+	 * appends up to 32 symbols at once
+	 *
+	 * @param digits the digits of the symbols, 2 bits each, the first symbol in
+	 *               the lowest bits
+	 * @param count  the number of symbols, at most 32
+	 * @return this buffer
+	 */
+	public TernaryBuffer appendDigits(long digits, int count) {
+		if (count == 0) {
+			return this;
+		}
+		ensureCapacity(length + count);
+		if (count < SYMBOLS_PER_WORD) {
+			digits &= (1L << (count * BITS_PER_SYMBOL)) - 1;
+		}
+		int word = length >>> WORD_SHIFT;
+		int bit = (length & INDEX_MASK) * BITS_PER_SYMBOL;
+		words[word] |= digits << bit;
+		if (bit + count * BITS_PER_SYMBOL > BITS_PER_WORD) {
+			words[word + 1] |= digits >>> (BITS_PER_WORD - bit);
+		}
+		length += count;
+		return this;
+	}
+
+	/**
+	 * appends one symbol
+	 *
+	 * @param symbol '+', '-' or '='
+	 * @return this buffer
+	 * @throws DecodeException if the symbol is not ternary
+	 */
+	public TernaryBuffer append(char symbol) throws DecodeException {
+		return appendDigits(digit(symbol), 1);
+	}
+
+	/**
+	 * appends the String form of a data stream
+	 *
+	 * @param symbols the data stream which consists of '+', '-' and '='
+	 * @return this buffer
+	 * @throws DecodeException if the data stream contains another character
+	 */
+	public TernaryBuffer append(CharSequence symbols) throws DecodeException {
+		if (symbols instanceof TernaryBuffer) {
+			return append((TernaryBuffer) symbols);
+		}
+		ensureCapacity(length + symbols.length());
+		int i = 0;
+		while (i < symbols.length()) {
+			int count = Math.min(SYMBOLS_PER_WORD, symbols.length() - i);
+			long digits = 0;
+			for (int j = 0; j < count; j++) {
+				digits |= digit(symbols.charAt(i + j)) << (j * BITS_PER_SYMBOL);
+			}
+			appendDigits(digits, count);
+			i += count;
+		}
+		return this;
+	}
+
+	/**
+	 * appends another buffer word by word
+	 *
+	 * @param other the buffer which we want to append
+	 * @return this buffer
+	 */
+	public TernaryBuffer append(TernaryBuffer other) {
+		return append(other, 0, other.length);
+	}
+
+	/**
+	 * appends a part of another buffer word by word
+	 *
+	 * @param other the buffer which we want to append
+	 * @param from  the position of the first symbol
+	 * @param to    the position after the last symbol
+	 * @return this buffer
+	 */
+	public TernaryBuffer append(TernaryBuffer other, int from, int to) {
+		other.checkIndex(from, to - from);
+		ensureCapacity(length + to - from);
+		for (int i = from; i < to; i += SYMBOLS_PER_WORD) {
+			int count = Math.min(SYMBOLS_PER_WORD, to - i);
+			appendDigits(other.getDigits(i, count), count);
+		}
+		return this;
+	}
+
+	/**
+	 * copies a part of the buffer
+	 *
+	 * @param from the position of the first symbol
+	 * @param to   the position after the last symbol
+	 * @return a new buffer with the symbols
+	 */
+	public TernaryBuffer slice(int from, int to) {
+		return new TernaryBuffer(to - from).append(this, from, to);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return slice(start, end);
+	}
+
+	/**
+	 * removes all symbols but keeps the memory
+	 */
+	public void clear() {
+		Arrays.fill(words, 0, wordCount(length), 0L);
+		length = 0;
+	}
+
+	/**
+	 * compares a region of this buffer with a region of another buffer
+	 *
+	 * @param offset      the position in this buffer
+	 * @param other       the other buffer
+	 * @param otherOffset the position in the other buffer
+	 * @param count       the number of symbols which are compared
+	 * @return true if both regions exist and contain the same symbols
+	 */
+	public boolean regionMatches(int offset, TernaryBuffer other, int otherOffset, int count) {
+		if (offset < 0 || otherOffset < 0 || count < 0 || offset + count > length
+				|| otherOffset + count > other.length) {
+			return false;
+		}
+		for (int i = 0; i < count; i += SYMBOLS_PER_WORD) {
+			int n = Math.min(SYMBOLS_PER_WORD, count - i);
+			if (getDigits(offset + i, n) != other.getDigits(otherOffset + i, n)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * compares the symbols in the order '-' &lt; '=' &lt; '+', a shorter buffer
+	 * which is the beginning of a longer one is smaller
+	 */
+	@Override
+	public int compareTo(TernaryBuffer other) {
+		int common = Math.min(length, other.length);
+		for (int i = 0; i < common; i += SYMBOLS_PER_WORD) {
+			int n = Math.min(SYMBOLS_PER_WORD, common - i);
+			long mine = getDigits(i, n);
+			long theirs = other.getDigits(i, n);
+			if (mine != theirs) {
+				int shift = (Long.numberOfTrailingZeros(mine ^ theirs) / BITS_PER_SYMBOL) * BITS_PER_SYMBOL;
+				return Long.compare((mine >>> shift) & DIGIT_MASK, (theirs >>> shift) & DIGIT_MASK);
+			}
+		}
+		return Integer.compare(length, other.length);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof TernaryBuffer)) {
+			return false;
+		}
+		TernaryBuffer other = (TernaryBuffer) obj;
+		// the unused bits are always 0, so whole words can be compared
+		int used = wordCount(length);
+		return length == other.length && Arrays.equals(words, 0, used, other.words, 0, used);
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = length;
+		for (int i = 0; i < wordCount(length); i++) {
+			hash = 31 * hash + Long.hashCode(words[i]);
+		}
+		return hash;
+	}
+
+	/**
+	 * converts the buffer to the String form
+	 *
+	 * @return the data stream which consists of '+', '-' and '='
+	 */
+	@Override
+	public String toString() {
+		char[] symbols = new char[length];
+		for (int i = 0; i < length; i++) {
+			symbols[i] = charAt(i);
+		}
+		return new String(symbols);
+	}
+
+	/**
+	 * gives the number of bytes of the packed form of a data stream
+	 *
+	 * @param symbols the number of symbols
+	 * @return the number of bytes which writeTo needs for so many symbols
+	 */
+	public static int packedSize(int symbols) {
+		return wordCount(symbols) * BYTES_PER_WORD;
+	}
+
+	/**
+	 * writes the packed symbols to a ByteBuffer, 32 symbols in every long in the
+	 * byte order of the ByteBuffer<br>
+	 * the length is not written, so the receiver must know it, for example from a
+	 * header of the frame.
+	 *
+	 * @param target the ByteBuffer which gets packedSize(length()) bytes
+	 * @throws BufferOverflowException if the ByteBuffer has not enough room
+	 */
+	public void writeTo(ByteBuffer target) throws BufferOverflowException {
+		int used = wordCount(length);
+		if (target.remaining() < used * BYTES_PER_WORD) {
+			throw new BufferOverflowException();
+		}
+		for (int i = 0; i < used; i++) {
+			target.putLong(words[i]);
+		}
+	}
+
+	/**
+	 * reads packed symbols which are written by {@link #writeTo(ByteBuffer)}
+	 *
+	 * @param source the ByteBuffer with the packed symbols at its position
+	 * @param length the number of symbols
+	 * @return the data stream
+	 * @throws BufferUnderflowException if the ByteBuffer has not enough bytes
+	 * @throws DecodeException          if a symbol is not ternary or the unused bits
+	 *                                  of the last long are not 0
+	 */
+	public static TernaryBuffer readFrom(ByteBuffer source, int length)
+			throws BufferUnderflowException, DecodeException {
+		if (length < 0) {
+			throw new IllegalArgumentException("Wrong length!!!");
+		}
+		int used = wordCount(length);
+		if (source.remaining() < used * BYTES_PER_WORD) {
+			throw new BufferUnderflowException();
+		}
+		TernaryBuffer buffer = new TernaryBuffer(length);
+		for (int i = 0; i < used; i++) {
+			long word = source.getLong();
+			if ((word & (word >>> 1) & LOW_BITS) != 0) {
+				throw new DecodeException("Wrong symbol!!!");
+			}
+			buffer.words[i] = word;
+		}
+		int rest = length & INDEX_MASK;
+		if (rest != 0 && buffer.words[used - 1] >>> (rest * BITS_PER_SYMBOL) != 0) {
+			throw new DecodeException("Wrong symbol!!!");
+		}
+		buffer.length = length;
+		return buffer;
+	}
+
+	/**
+	 * writes the String form of a data stream in the packed form of
+	 * {@link #writeTo(ByteBuffer)} without creating a buffer
+	 *
+	 * @param symbols the data stream which consists of '+', '-' and '='
+	 * @param target  the ByteBuffer which gets packedSize(symbols.length()) bytes
+	 * @throws BufferOverflowException if the ByteBuffer has not enough room
+	 * @throws DecodeException         if the data stream contains another
+	 *                                 character
+	 */
+	public static void pack(CharSequence symbols, ByteBuffer target) throws BufferOverflowException, DecodeException {
+		if (target.remaining() < packedSize(symbols.length())) {
+			throw new BufferOverflowException();
+		}
+		for (int i = 0; i < symbols.length(); i += SYMBOLS_PER_WORD) {
+			int count = Math.min(SYMBOLS_PER_WORD, symbols.length() - i);
+			long digits = 0;
+			for (int j = 0; j < count; j++) {
+				digits |= digit(symbols.charAt(i + j)) << (j * BITS_PER_SYMBOL);
+			}
+			target.putLong(digits);
+		}
+	}
+
+	/**
+	 * reads packed symbols which are written by {@link #writeTo(ByteBuffer)} or
+	 * {@link #pack(CharSequence, ByteBuffer)} directly into the String form
+	 *
+	 * @param source the ByteBuffer with the packed symbols at its position
+	 * @param length the number of symbols
+	 * @return the data stream which consists of '+', '-' and '='
+	 * @throws BufferUnderflowException if the ByteBuffer has not enough bytes
+	 * @throws DecodeException          if a symbol is not ternary
+	 */
+	public static String unpack(ByteBuffer source, int length) throws BufferUnderflowException, DecodeException {
+		if (source.remaining() < packedSize(length)) {
+			throw new BufferUnderflowException();
+		}
+		char[] symbols = new char[length];
+		for (int i = 0; i < length; i += SYMBOLS_PER_WORD) {
+			long word = source.getLong();
+			if ((word & (word >>> 1) & LOW_BITS) != 0) {
+				throw new DecodeException("Wrong symbol!!!");
+			}
+			int count = Math.min(SYMBOLS_PER_WORD, length - i);
+			for (int j = 0; j < count; j++) {
+				symbols[i + j] = SYMBOLS[(int) ((word >>> (j * BITS_PER_SYMBOL)) & DIGIT_MASK)];
+			}
+		}
+		return new String(symbols);
+	}
+
+	private void checkIndex(int index, int count) {
+		if (index < 0 || count < 0 || index + count > length) {
+			throw new IndexOutOfBoundsException("index " + index + ", count " + count + ", length " + length);
+		}
+	}
+
+	/**
+	 * converts one symbol to its digit
+	 *
+	 * @param symbol '+', '-' or '='
+	 * @return the digit of the symbol
+	 * @throws DecodeException if the symbol is not ternary
+	 */
+	private static long digit(char symbol) throws DecodeException {
+		int digit = DecodeTable8B6T.digit(symbol);
+		if (digit == DecodeTable8B6T.INVALID) {
+			throw new DecodeException("Wrong symbol!!!");
+		}
+		return digit;
+	}
+}
@@ -0,0 +1,48 @@
+package eit.linecode;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * This class writes every data stream of an {@link EncoderSession8B6T} to its
+ * own Writer<br>
+ * so the data streams can be written to three files, or to three channels with
+ * java.nio.channels.Channels.newWriter.
+ *
+ * @author Hamed Nakhei
+ */
+public class WriterSymbolSink implements SymbolSink {
+
+	private static final int THREE_DATASTREAMS = 3;
+	private final Writer[] writers;
+
+	/**
+	 * is the standard constructor
+	 *
+	 * @param first  the Writer for the first data stream
+	 * @param second the Writer for the second data stream
+	 * @param third  the Writer for the third data stream
+	 */
+	public WriterSymbolSink(Writer first, Writer second, Writer third) {
+		this.writers = new Writer[] { first, second, third };
+	}
+
+	@Override
+	public void write(int dataStream, char[] symbols, int offset, int length) throws IOException {
+		writers[dataStream - 1].write(symbols, offset, length);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		for (int i = 0; i < THREE_DATASTREAMS; i++) {
+			writers[i].flush();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (int i = 0; i < THREE_DATASTREAMS; i++) {
+			writers[i].close();
+		}
+	}
+}
@@ -1,22 +1,36 @@
 package eit.medium;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.NoSuchElementException;
 
 /**In this class, the data are stored in the order in which they are
  * stored and are packed in with the transmit functions and received with receive.<br>
+ * the datas are kept in a deque, so receive does not move the other datas.
+ * the deque cannot keep null, and poll returns null for an empty cable, so
+ * null is not accepted as data.
  * @author Hamed Nakhei
  * @param <E> is the data type which we put into the cable.
  */
 
 public class Cable<E> implements Line<E> {
 
-	private List<E> data = new ArrayList<E>();
+	private Deque<E> data = new ArrayDeque<E>();
 
+	/**
+	 * put the element at the end of the cable
+	 *
+	 * @param element which is packed in queue
+	 * @return always true
+	 * @throws IllegalArgumentException if the element is null
+	 */
 	@Override
 	public boolean transmit(E element) {
-		data.add(element);
+		if (element == null) {
+			throw new IllegalArgumentException("Element must not be null!!!");
+		}
+		data.addLast(element);
 		return true;
 	}
 
@@ -25,9 +39,7 @@ public class Cable<E> implements Line<E> {
 		if (this.hasData() == false) {
 			throw new NoSuchElementException();
 		}
-		E element = data.get(0);
-		data.remove(0);
-		return element;
+		return data.removeFirst();
 
 	}
 
@@ -40,4 +52,37 @@ public class Cable<E> implements Line<E> {
 		}
 	}
 
+	@Override
+	public E poll() {
+		return data.pollFirst();
+	}
+
+	/**
+	 * put all elements at the end of the cable
+	 *
+	 * @param elements which are packed in queue
+	 * @return the number of elements
+	 * @throws IllegalArgumentException if an element is null, then no element is
+	 *                                  put in the cable
+	 */
+	@Override
+	public int transmitAll(Collection<? extends E> elements) {
+		for (E element : elements) {
+			if (element == null) {
+				throw new IllegalArgumentException("Element must not be null!!!");
+			}
+		}
+		data.addAll(elements);
+		return elements.size();
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> elements, int max) {
+		int count = Math.min(max, data.size());
+		for (int i = 0; i < count; i++) {
+			elements.add(data.removeFirst());
+		}
+		return count;
+	}
+
 }
@@ -0,0 +1,41 @@
+package eit.medium;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * With this interface, a Line can be used by a sending and a receiving thread
+ * at the same time<br>
+ * besides the methods of {@link Line}, the class must implement poll, which
+ * never waits, and receive with a timeout, which waits until an element
+ * arrives. poll is not taken from Line, because another receiver can take the
+ * element between hasData and receive.<br>
+ * so the receiver can decode and store a frame while the sender is still
+ * encoding the next one.
+ *
+ * @param <E> this parameter will adapt to the class and return the required
+ *            data type. which we pack in the queue
+ */
+public interface ConcurrentLine<E> extends Line<E> {
+
+	/**
+	 * fetch the next element from the cable without waiting
+	 *
+	 * @return the next element or null if there are no datas in cable
+	 */
+	@Override
+	E poll();
+
+	/**
+	 * fetch the next element from the cable, if there are no datas in cable this
+	 * method waits until an element is transmitted or the timeout is over
+	 *
+	 * @param timeout how long to wait
+	 * @param unit    the unit of the timeout
+	 * @return the next element
+	 * @throws NoSuchElementException if there are still no datas in cable after
+	 *                                the timeout
+	 * @throws InterruptedException   if the thread is interrupted while waiting
+	 */
+	E receive(long timeout, TimeUnit unit) throws NoSuchElementException, InterruptedException;
+}
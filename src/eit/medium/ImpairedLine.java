@@ -0,0 +1,386 @@
+package eit.medium;
+
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * This class simulates a bad link in front of another Line<br>
+ * every frame which is transmitted gets the following impairments:
+ * <li>the link needs the wire time, the number of symbols of the longest data
+ * stream divided by the bandwidth, because the data streams are sent in
+ * parallel. a frame waits until the previous one is on the wire</li>
+ * <li>the frame arrives after the propagation latency</li>
+ * <li>a symbol is flipped to one of the two other symbols with the flip
+ * rate</li>
+ * <li>a frame is dropped, duplicated or delayed by the reorder delay, so that
+ * later frames overtake it, with the given probabilities</li>
+ * the time is not the real time but a virtual clock, so the simulation is fast
+ * and gives the same result for the same seed every time. a frame is handed to
+ * the inner Line as soon as it has arrived, that is when the sender has moved
+ * the clock past its arrival or when the receiver waits for it.<br>
+ * the statistics contain the wire time, the virtual time of the last delivered
+ * frame and the goodput, the symbols of the frames which arrive undamaged per
+ * second.
+ *
+ * @author Hamed Nakhei
+ */
+public class ImpairedLine implements Line<String[]> {
+
+	private static final char[] SYMBOLS = { '-', '=', '+' };
+
+	/**
+	 * a frame on the way to the receiver
+	 */
+	private static class Flight implements Comparable<Flight> {
+		private final String[] frame;
+		private final double arrival;
+		private final long number;
+		private final boolean damaged;
+
+		Flight(String[] frame, double arrival, long number, boolean damaged) {
+			this.frame = frame;
+			this.arrival = arrival;
+			this.number = number;
+			this.damaged = damaged;
+		}
+
+		@Override
+		public int compareTo(Flight other) {
+			int order = Double.compare(arrival, other.arrival);
+			return order != 0 ? order : Long.compare(number, other.number);
+		}
+	}
+
+	private final Line<String[]> inner;
+	private final Random random;
+	private final PriorityQueue<Flight> inFlight = new PriorityQueue<Flight>();
+	private double latency = 0;
+	private double bandwidth = Double.POSITIVE_INFINITY;
+	private double flipRate = 0;
+	private double dropRate = 0;
+	private double duplicateRate = 0;
+	private double reorderRate = 0;
+	private double reorderDelay = 0;
+
+	// the virtual time in seconds
+	private double clock = 0;
+	// the time when the link is free for the next frame
+	private double linkFree = 0;
+	private long frameNumber = 0;
+	private double wireSeconds = 0;
+	private long framesSent = 0;
+	private long framesDropped = 0;
+	private long framesDuplicated = 0;
+	private long framesReordered = 0;
+	private long framesDelivered = 0;
+	private long framesDamaged = 0;
+	private long symbolsSent = 0;
+	private long symbolsFlipped = 0;
+	private long goodSymbols = 0;
+
+	/**
+	 * is the standard constructor, the link has no impairments until they are set
+	 *
+	 * @param inner the Line which gets the frames after they have arrived
+	 * @param seed  the seed of the random numbers, the same seed gives the same
+	 *              impairments
+	 */
+	public ImpairedLine(Line<String[]> inner, long seed) {
+		this.inner = inner;
+		this.random = new Random(seed);
+	}
+
+	/**
+	 * @param seconds the propagation latency of every frame
+	 * @return this line
+	 */
+	public ImpairedLine setLatency(double seconds) {
+		this.latency = checkNotNegative(seconds);
+		return this;
+	}
+
+	/**
+	 * @param symbolsPerSecond the symbols per second of every data stream
+	 * @return this line
+	 */
+	public ImpairedLine setBandwidth(double symbolsPerSecond) {
+		if (!(symbolsPerSecond > 0)) {
+			throw new IllegalArgumentException("Bandwidth must be positive!!!");
+		}
+		this.bandwidth = symbolsPerSecond;
+		return this;
+	}
+
+	/**
+	 * @param rate the probability that a symbol is flipped
+	 * @return this line
+	 */
+	public ImpairedLine setFlipRate(double rate) {
+		this.flipRate = checkProbability(rate);
+		return this;
+	}
+
+	/**
+	 * @param rate the probability that a frame is dropped
+	 * @return this line
+	 */
+	public ImpairedLine setDropRate(double rate) {
+		this.dropRate = checkProbability(rate);
+		return this;
+	}
+
+	/**
+	 * @param rate the probability that a frame arrives twice
+	 * @return this line
+	 */
+	public ImpairedLine setDuplicateRate(double rate) {
+		this.duplicateRate = checkProbability(rate);
+		return this;
+	}
+
+	/**
+	 * @param rate    the probability that a frame is delayed
+	 * @param seconds the additional delay of such a frame
+	 * @return this line
+	 */
+	public ImpairedLine setReordering(double rate, double seconds) {
+		this.reorderRate = checkProbability(rate);
+		this.reorderDelay = checkNotNegative(seconds);
+		return this;
+	}
+
+	private static double checkProbability(double rate) {
+		if (!(rate >= 0 && rate <= 1)) {
+			throw new IllegalArgumentException("Probability must be between 0 and 1!!!");
+		}
+		return rate;
+	}
+
+	private static double checkNotNegative(double seconds) {
+		if (!(seconds >= 0)) {
+			throw new IllegalArgumentException("Time must not be negative!!!");
+		}
+		return seconds;
+	}
+
+	/**
+	 * puts the frame on the simulated link
+	 *
+	 * @return true, also if the frame is dropped, because the sender cannot see
+	 *         it
+	 */
+	@Override
+	public boolean transmit(String[] element) {
+		int longest = 0;
+		for (String dataStream : element) {
+			longest = Math.max(longest, dataStream.length());
+			symbolsSent += dataStream.length();
+		}
+		double wireTime = longest / bandwidth;
+		double start = Math.max(clock, linkFree);
+		linkFree = start + wireTime;
+		clock = linkFree;
+		wireSeconds += wireTime;
+		framesSent++;
+
+		if (random.nextDouble() < dropRate) {
+			framesDropped++;
+		} else {
+			double arrival = linkFree + latency;
+			if (random.nextDouble() < reorderRate) {
+				arrival += reorderDelay;
+				framesReordered++;
+			}
+			String[] frame = flipSymbols(element);
+			inFlight.add(new Flight(frame, arrival, frameNumber++, frame != element));
+			if (random.nextDouble() < duplicateRate) {
+				inFlight.add(new Flight(frame, arrival, frameNumber++, frame != element));
+				framesDuplicated++;
+			}
+		}
+		deliverArrived();
+		return true;
+	}
+
+	/**
+	 * flips symbols with the flip rate, the distance to the next flipped symbol is
+	 * drawn from the geometric distribution, so only the flipped symbols cost time
+	 *
+	 * @return the same array if no symbol is flipped, otherwise a damaged copy
+	 */
+	private String[] flipSymbols(String[] element) {
+		if (flipRate == 0) {
+			return element;
+		}
+		String[] result = element;
+		for (int i = 0; i < element.length; i++) {
+			char[] symbols = null;
+			int length = element[i].length();
+			// the position of the last flipped symbol, the skip is compared with the
+			// symbols which are left, so a huge skip cannot overflow the position
+			long position = -1;
+			while (true) {
+				double skip = nextFlip();
+				long remaining = length - position - 1;
+				if (skip >= remaining) {
+					break;
+				}
+				position += 1 + (long) skip;
+				if (symbols == null) {
+					symbols = element[i].toCharArray();
+				}
+				int index = (int) position;
+				int digit = symbols[index] == '-' ? 0 : symbols[index] == '=' ? 1 : 2;
+				symbols[index] = SYMBOLS[(digit + 1 + random.nextInt(2)) % SYMBOLS.length];
+				symbolsFlipped++;
+			}
+			if (symbols != null) {
+				if (result == element) {
+					result = element.clone();
+				}
+				result[i] = new String(symbols);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of symbols before the next flipped symbol, at least 0 and
+	 *         possibly infinite
+	 */
+	private double nextFlip() {
+		if (flipRate == 1) {
+			return 0;
+		}
+		// log1p keeps a very small flip rate from rounding 1 - flipRate to 1
+		return Math.floor(Math.log1p(-random.nextDouble()) / Math.log1p(-flipRate));
+	}
+
+	/**
+	 * hands every frame which has arrived by now to the inner Line
+	 */
+	private void deliverArrived() {
+		while (!inFlight.isEmpty() && inFlight.peek().arrival <= clock) {
+			deliver(inFlight.poll());
+		}
+	}
+
+	private void deliver(Flight flight) {
+		framesDelivered++;
+		if (flight.damaged) {
+			framesDamaged++;
+		} else {
+			for (String dataStream : flight.frame) {
+				goodSymbols += dataStream.length();
+			}
+		}
+		inner.transmit(flight.frame);
+	}
+
+	/**
+	 * takes the next frame from the inner Line, if there is none the receiver
+	 * waits for the next frame on the link and the clock moves to its arrival
+	 */
+	@Override
+	public String[] receive() throws NoSuchElementException {
+		if (!inner.hasData() && !inFlight.isEmpty()) {
+			Flight next = inFlight.poll();
+			clock = Math.max(clock, next.arrival);
+			deliver(next);
+			deliverArrived();
+		}
+		return inner.receive();
+	}
+
+	@Override
+	public boolean hasData() {
+		return inner.hasData() || !inFlight.isEmpty();
+	}
+
+	/**
+	 * @return the virtual time in seconds
+	 */
+	public double getClock() {
+		return clock;
+	}
+
+	/**
+	 * @return the seconds in which the link was busy
+	 */
+	public double getWireSeconds() {
+		return wireSeconds;
+	}
+
+	/**
+	 * @return the symbols of the undamaged frames which are delivered per virtual
+	 *         second, duplicates included
+	 */
+	public double getGoodput() {
+		return clock == 0 ? 0 : goodSymbols / clock;
+	}
+
+	/**
+	 * @return the number of transmitted frames
+	 */
+	public long getFramesSent() {
+		return framesSent;
+	}
+
+	/**
+	 * @return the number of frames which are handed to the inner Line
+	 */
+	public long getFramesDelivered() {
+		return framesDelivered;
+	}
+
+	/**
+	 * @return the number of dropped frames
+	 */
+	public long getFramesDropped() {
+		return framesDropped;
+	}
+
+	/**
+	 * @return the number of frames which arrived twice
+	 */
+	public long getFramesDuplicated() {
+		return framesDuplicated;
+	}
+
+	/**
+	 * @return the number of delayed frames
+	 */
+	public long getFramesReordered() {
+		return framesReordered;
+	}
+
+	/**
+	 * @return the number of delivered frames with at least one flipped symbol
+	 */
+	public long getFramesDamaged() {
+		return framesDamaged;
+	}
+
+	/**
+	 * @return the number of transmitted symbols
+	 */
+	public long getSymbolsSent() {
+		return symbolsSent;
+	}
+
+	/**
+	 * @return the number of flipped symbols
+	 */
+	public long getSymbolsFlipped() {
+		return symbolsFlipped;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("sent %d, delivered %d, dropped %d, duplicated %d, reordered %d, damaged %d frames, "
+				+ "flipped %d of %d symbols, wire %.6f s, clock %.6f s, goodput %.1f symbols/s", framesSent,
+				framesDelivered, framesDropped, framesDuplicated, framesReordered, framesDamaged, symbolsFlipped,
+				symbolsSent, wireSeconds, clock, getGoodput());
+	}
+}
@@ -0,0 +1,318 @@
+package eit.medium;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class measures what happens on another Line<br>
+ * the following values are counted:
+ * <li>transmitted and received frames and symbols</li>
+ * <li>the current and the peak number of frames in the line</li>
+ * <li>the residence time from transmit to receive as a histogram</li>
+ * <li>frames which the line does not accept</li>
+ * <li>receive calls which find no frame</li>
+ * the counters are LongAdders, which spread the updates of several threads over
+ * several cells, so the measurement does not slow down the line. the histogram
+ * has one bucket for every power of two nanoseconds.<br>
+ * the residence time assumes that the line delivers the frames in the order in
+ * which they are transmitted, like every Line in this package except an
+ * {@link ImpairedLine} with reordering. the transmit time of the last
+ * STAMPS frames is kept, the residence of older frames is not measured.<br>
+ * symbols are counted if the element is a CharSequence or an array of
+ * CharSequences, like the String[] of the encoder.
+ *
+ * @author Hamed Nakhei
+ * @param <E> is the data type which we put into the cable.
+ */
+public class InstrumentedLine<E> implements ConcurrentLine<E> {
+
+	/**
+	 * the number of frames whose transmit time is kept
+	 */
+	public static final int STAMPS = 1 << 16;
+	/**
+	 * the number of buckets of the histogram, bucket i counts the residence times
+	 * from 2^i to 2^(i+1)-1 nanoseconds
+	 */
+	public static final int BUCKETS = 64;
+
+	/**
+	 * the values of an InstrumentedLine at one moment
+	 */
+	public static final class Snapshot {
+		/** the number of transmitted frames */
+		public final long framesTransmitted;
+		/** the number of symbols in the transmitted frames */
+		public final long symbolsTransmitted;
+		/** the number of received frames */
+		public final long framesReceived;
+		/** the number of symbols in the received frames */
+		public final long symbolsReceived;
+		/** the number of frames which the line did not accept */
+		public final long rejected;
+		/** the number of receive calls which found no frame */
+		public final long empty;
+		/** the number of frames in the line */
+		public final long depth;
+		/** the largest number of frames in the line */
+		public final long peakDepth;
+		/** the residence time histogram, see {@link InstrumentedLine#BUCKETS} */
+		public final long[] histogram;
+		/** the sum of the measured residence times in nanoseconds */
+		public final long residenceNanos;
+
+		Snapshot(long framesTransmitted, long symbolsTransmitted, long framesReceived, long symbolsReceived,
+				long rejected, long empty, long depth, long peakDepth, long[] histogram, long residenceNanos) {
+			this.framesTransmitted = framesTransmitted;
+			this.symbolsTransmitted = symbolsTransmitted;
+			this.framesReceived = framesReceived;
+			this.symbolsReceived = symbolsReceived;
+			this.rejected = rejected;
+			this.empty = empty;
+			this.depth = depth;
+			this.peakDepth = peakDepth;
+			this.histogram = histogram;
+			this.residenceNanos = residenceNanos;
+		}
+
+		/**
+		 * @return the number of measured residence times
+		 */
+		public long residenceCount() {
+			long count = 0;
+			for (long bucket : histogram) {
+				count += bucket;
+			}
+			return count;
+		}
+
+		/**
+		 * @return the mean residence time in nanoseconds or 0 if none is measured
+		 */
+		public double meanResidenceNanos() {
+			long count = residenceCount();
+			return count == 0 ? 0 : (double) residenceNanos / count;
+		}
+
+		/**
+		 * gives an upper bound of a percentile of the residence time
+		 *
+		 * @param percentile between 0 and 100
+		 * @return the upper end of the bucket which contains the percentile in
+		 *         nanoseconds, 0 if none is measured
+		 */
+		public long percentileNanos(double percentile) {
+			long count = residenceCount();
+			long rank = (long) Math.ceil(count * percentile / 100);
+			long seen = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				seen += histogram[i];
+				if (seen >= rank && seen > 0) {
+					return i >= BUCKETS - 2 ? Long.MAX_VALUE : (2L << i) - 1;
+				}
+			}
+			return 0;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("transmitted %d frames/%d symbols, received %d frames/%d symbols, rejected %d, "
+					+ "empty %d, depth %d, peak %d, residence mean %.0f ns, p50 < %d ns, p99 < %d ns",
+					framesTransmitted, symbolsTransmitted, framesReceived, symbolsReceived, rejected, empty, depth,
+					peakDepth, meanResidenceNanos(), percentileNanos(50), percentileNanos(99));
+		}
+	}
+
+	private final Line<E> inner;
+	private final LongAdder framesTransmitted = new LongAdder();
+	private final LongAdder symbolsTransmitted = new LongAdder();
+	private final LongAdder framesReceived = new LongAdder();
+	private final LongAdder symbolsReceived = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder empty = new LongAdder();
+	private final LongAdder residenceNanos = new LongAdder();
+	private final LongAdder[] histogram = new LongAdder[BUCKETS];
+	private final LongAccumulator peakDepth = new LongAccumulator(Math::max, 0);
+	// the number of frames which went in and out since the line is created
+	private final AtomicLong in = new AtomicLong();
+	private final AtomicLong out = new AtomicLong();
+	private final AtomicLongArray stamps = new AtomicLongArray(STAMPS);
+
+	/**
+	 * is the standard constructor
+	 *
+	 * @param inner the Line which is measured
+	 */
+	public InstrumentedLine(Line<E> inner) {
+		this.inner = inner;
+		for (int i = 0; i < BUCKETS; i++) {
+			histogram[i] = new LongAdder();
+		}
+	}
+
+	@Override
+	public boolean transmit(E element) {
+		long now = System.nanoTime();
+		if (!inner.transmit(element)) {
+			rejected.increment();
+			return false;
+		}
+		transmitted(element, now);
+		return true;
+	}
+
+	@Override
+	public int transmitAll(Collection<? extends E> elements) {
+		long now = System.nanoTime();
+		int count = inner.transmitAll(elements);
+		int i = 0;
+		for (E element : elements) {
+			if (i++ == count) {
+				break;
+			}
+			transmitted(element, now);
+		}
+		if (count < elements.size()) {
+			rejected.add(elements.size() - count);
+		}
+		return count;
+	}
+
+	private void transmitted(E element, long now) {
+		long index = in.getAndIncrement();
+		// a time of 0 means unknown, nanoTime can be 0 or negative
+		stamps.lazySet((int) (index & (STAMPS - 1)), now == 0 ? 1 : now);
+		framesTransmitted.increment();
+		symbolsTransmitted.add(symbols(element));
+		peakDepth.accumulate(index + 1 - out.get());
+	}
+
+	@Override
+	public E poll() {
+		E element = inner.poll();
+		if (element == null) {
+			empty.increment();
+		} else {
+			received(element, System.nanoTime());
+		}
+		return element;
+	}
+
+	@Override
+	public E receive() throws NoSuchElementException {
+		E element;
+		try {
+			element = inner.receive();
+		} catch (NoSuchElementException e) {
+			empty.increment();
+			throw e;
+		}
+		received(element, System.nanoTime());
+		return element;
+	}
+
+	/**
+	 * waits if the inner Line is a ConcurrentLine, otherwise it is the same as
+	 * receive
+	 */
+	@Override
+	public E receive(long timeout, TimeUnit unit) throws NoSuchElementException, InterruptedException {
+		if (!(inner instanceof ConcurrentLine)) {
+			return receive();
+		}
+		E element;
+		try {
+			element = ((ConcurrentLine<E>) inner).receive(timeout, unit);
+		} catch (NoSuchElementException e) {
+			empty.increment();
+			throw e;
+		}
+		received(element, System.nanoTime());
+		return element;
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> elements, int max) {
+		List<E> drained = new ArrayList<E>();
+		int count = inner.drainTo(drained, max);
+		long now = System.nanoTime();
+		for (E element : drained) {
+			received(element, now);
+		}
+		elements.addAll(drained);
+		return count;
+	}
+
+	private void received(E element, long now) {
+		long index = out.getAndIncrement();
+		framesReceived.increment();
+		symbolsReceived.add(symbols(element));
+		// the stamp is only valid if it is not overwritten by a newer frame
+		if (index < in.get() && in.get() - index <= STAMPS) {
+			long stamp = stamps.get((int) (index & (STAMPS - 1)));
+			if (stamp != 0) {
+				long residence = Math.max(now - stamp, 1);
+				histogram[BUCKETS - 1 - Long.numberOfLeadingZeros(residence)].increment();
+				residenceNanos.add(residence);
+			}
+		}
+	}
+
+	private static long symbols(Object element) {
+		if (element instanceof CharSequence) {
+			return ((CharSequence) element).length();
+		}
+		long count = 0;
+		if (element instanceof CharSequence[]) {
+			for (CharSequence dataStream : (CharSequence[]) element) {
+				count += dataStream == null ? 0 : dataStream.length();
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public boolean hasData() {
+		return inner.hasData();
+	}
+
+	/**
+	 * @return the current values of all counters
+	 */
+	public Snapshot snapshot() {
+		long[] buckets = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets[i] = histogram[i].sum();
+		}
+		long depth = Math.max(in.get() - out.get(), 0);
+		return new Snapshot(framesTransmitted.sum(), symbolsTransmitted.sum(), framesReceived.sum(),
+				symbolsReceived.sum(), rejected.sum(), empty.sum(), depth, Math.max(peakDepth.get(), depth), buckets,
+				residenceNanos.sum());
+	}
+
+	/**
+	 * gives the current values and sets all counters to 0, the peak depth starts
+	 * again at the current depth
+	 *
+	 * @return the values before the reset
+	 */
+	public Snapshot reset() {
+		long[] buckets = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets[i] = histogram[i].sumThenReset();
+		}
+		long depth = Math.max(in.get() - out.get(), 0);
+		long peak = Math.max(peakDepth.getThenReset(), depth);
+		peakDepth.accumulate(depth);
+		return new Snapshot(framesTransmitted.sumThenReset(), symbolsTransmitted.sumThenReset(),
+				framesReceived.sumThenReset(), symbolsReceived.sumThenReset(), rejected.sumThenReset(),
+				empty.sumThenReset(), depth, peak, buckets, residenceNanos.sumThenReset());
+	}
+}
@@ -1,5 +1,6 @@
 package eit.medium;
 
+import java.util.Collection;
 import java.util.NoSuchElementException;
 
 /**
@@ -8,6 +9,8 @@ import java.util.NoSuchElementException;
  * <li>transmit</li>
  * <li>receive</li>
  * <li>hasData</li>
+ * the batch methods transmitAll, drainTo and poll are built on these methods,
+ * but a class can implement them with less work per element.<br>
  * @param <E> this parameter will adapt to the class and return the 
  * required data type. which we pack in the queue
  */
@@ -34,4 +37,51 @@ public interface Line<E> {
 	
 	 boolean hasData();
 
-}
\ No newline at end of file
+	/**
+	 * fetch the next element from the cable in one step, instead of hasData and
+	 * receive. null means an empty cable, so a Line which uses poll should not
+	 * carry null elements, {@link Cable} does not accept them.
+	 *
+	 * @return the next element or null if there are no datas in cable
+	 */
+	default E poll() {
+		return hasData() ? receive() : null;
+	}
+
+	/**
+	 * put all elements in the cable in the order of the collection<br>
+	 * it stops at the first element which is not accepted.
+	 *
+	 * @param elements which are packed in queue
+	 * @return the number of elements which are put in the cable
+	 */
+	default int transmitAll(Collection<? extends E> elements) {
+		int count = 0;
+		for (E element : elements) {
+			if (!transmit(element)) {
+				break;
+			}
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * fetch the waiting elements from the cable and add them to a collection,
+	 * this method never waits
+	 *
+	 * @param elements the collection which gets the elements
+	 * @param max      the maximal number of elements
+	 * @return the number of elements which are fetched
+	 */
+	default int drainTo(Collection<? super E> elements, int max) {
+		int count = 0;
+		E element;
+		while (count < max && (element = poll()) != null) {
+			elements.add(element);
+			count++;
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,378 @@
+package eit.medium;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class carries many sessions over one Line<br>
+ * every session gets its own sub-line with {@link #open(int)}. a frame which
+ * is transmitted on a sub-line gets the session number as an additional last
+ * element, the tag, which consists of TAG_LENGTH ternary symbols. so the tag
+ * can be sent over every Line, also over a {@link SymbolCable} or a
+ * {@link SocketCable}. the receiver removes the tag and puts the frame in the
+ * receive queue of its session, so a receiveFile on one sub-line only sees the
+ * frames of its own file.<br>
+ * one thread may send on the medium while another thread reads from it. a
+ * medium which is not a {@link ConcurrentLine}, like a {@link Cable}, is
+ * therefore only used under one lock.<br>
+ * the frames of a session are first put in its send queue. the thread which
+ * finds the medium free sends the queued frames of all sessions in weighted
+ * round-robin order: in every round a session sends up to its weight frames.
+ * if the medium is slow, the send queues fill up and transmit waits until
+ * there is room in its queue, so a session with a higher weight gets a larger
+ * part of the medium.<br>
+ * frames for a session which is not open yet are kept until it is opened.
+ * frames with a wrong tag are dropped and counted.
+ *
+ * @author Hamed Nakhei
+ */
+public class LineMultiplexer {
+
+	/**
+	 * the number of symbols of the tag, 3^20 is larger than the largest session
+	 * number
+	 */
+	public static final int TAG_LENGTH = 20;
+	/**
+	 * the number of frames in the send queue of a session of the standard
+	 * constructor
+	 */
+	public static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+	private static final char[] SYMBOLS = { '-', '=', '+' };
+	private static final int BASE = 3;
+	// how long a waiting receiver reads the medium before it checks its queue
+	private static final long READ_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	/**
+	 * the state of one session
+	 */
+	private class Session implements ConcurrentLine<String[]> {
+		private final int number;
+		private int weight = 1;
+		private final Deque<String[]> sendQueue = new ArrayDeque<String[]>();
+		private final Deque<String[]> receiveQueue = new ArrayDeque<String[]>();
+
+		Session(int number) {
+			this.number = number;
+		}
+
+		@Override
+		public boolean transmit(String[] element) {
+			String[] tagged = Arrays.copyOf(element, element.length + 1);
+			tagged[element.length] = tag(number);
+			synchronized (LineMultiplexer.this) {
+				while (sendQueue.size() >= queueCapacity) {
+					try {
+						LineMultiplexer.this.wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return false;
+					}
+				}
+				sendQueue.addLast(tagged);
+			}
+			return pump();
+		}
+
+		@Override
+		public String[] poll() {
+			synchronized (LineMultiplexer.this) {
+				if (receiveQueue.isEmpty()) {
+					readAvailable();
+				}
+				return receiveQueue.pollFirst();
+			}
+		}
+
+		@Override
+		public String[] receive() throws NoSuchElementException {
+			String[] element = poll();
+			if (element == null) {
+				throw new NoSuchElementException();
+			}
+			return element;
+		}
+
+		@Override
+		public String[] receive(long timeout, TimeUnit unit) throws NoSuchElementException, InterruptedException {
+			long deadline = System.nanoTime() + unit.toNanos(timeout);
+			while (true) {
+				String[] element = poll();
+				if (element != null) {
+					return element;
+				}
+				long left = deadline - System.nanoTime();
+				if (left <= 0) {
+					throw new NoSuchElementException();
+				}
+				awaitFrame(Math.min(left, READ_SLICE_NANOS));
+			}
+		}
+
+		@Override
+		public boolean hasData() {
+			synchronized (LineMultiplexer.this) {
+				if (receiveQueue.isEmpty()) {
+					readAvailable();
+				}
+				return !receiveQueue.isEmpty();
+			}
+		}
+	}
+
+	/**
+	 * a Line which is not made for several threads, every method runs under the
+	 * monitor of this object
+	 */
+	private static class SerializedLine implements Line<String[]> {
+		private final Line<String[]> line;
+
+		SerializedLine(Line<String[]> line) {
+			this.line = line;
+		}
+
+		@Override
+		public synchronized boolean transmit(String[] element) {
+			return line.transmit(element);
+		}
+
+		@Override
+		public synchronized String[] receive() throws NoSuchElementException {
+			return line.receive();
+		}
+
+		@Override
+		public synchronized boolean hasData() {
+			return line.hasData();
+		}
+
+		@Override
+		public synchronized String[] poll() {
+			return line.poll();
+		}
+	}
+
+	private final Line<String[]> medium;
+	private final int queueCapacity;
+	private final Map<Integer, Session> sessions = new LinkedHashMap<Integer, Session>();
+	// only one thread sends on the medium and only one thread reads from it, so
+	// the frames of every session are dispatched in the order of the medium. the
+	// sender and the reader can use the medium at the same time
+	private final ReentrantLock sendLock = new ReentrantLock();
+	private final ReentrantLock readLock = new ReentrantLock();
+	private long invalidFrames = 0;
+
+	/**
+	 * is the standard constructor
+	 *
+	 * @param medium the Line which carries the frames of all sessions
+	 */
+	public LineMultiplexer(Line<String[]> medium) {
+		this(medium, DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * creates a multiplexer with a given size of the send queues
+	 *
+	 * @param medium        the Line which carries the frames of all sessions, if it
+	 *                      is not a ConcurrentLine it is only used under one lock
+	 * @param queueCapacity the number of frames in the send queue of a session
+	 */
+	public LineMultiplexer(Line<String[]> medium, int queueCapacity) {
+		if (queueCapacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1!!!");
+		}
+		this.medium = medium instanceof ConcurrentLine ? medium : new SerializedLine(medium);
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * gives the sub-line of a session with the weight 1
+	 *
+	 * @param session the number of the session
+	 * @return the sub-line, the same one on every call
+	 */
+	public ConcurrentLine<String[]> open(int session) {
+		return session(session);
+	}
+
+	/**
+	 * gives the sub-line of a session and sets its weight
+	 *
+	 * @param session the number of the session
+	 * @param weight  the number of frames the session sends in one round
+	 * @return the sub-line, the same one on every call
+	 */
+	public ConcurrentLine<String[]> open(int session, int weight) {
+		if (weight < 1) {
+			throw new IllegalArgumentException("Weight must be at least 1!!!");
+		}
+		Session result = session(session);
+		synchronized (this) {
+			result.weight = weight;
+		}
+		return result;
+	}
+
+	private synchronized Session session(int number) {
+		if (number < 0) {
+			throw new IllegalArgumentException("Session must not be negative!!!");
+		}
+		return sessions.computeIfAbsent(number, Session::new);
+	}
+
+	/**
+	 * @return the number of received frames which are dropped because of a wrong
+	 *         tag
+	 */
+	public synchronized long getInvalidFrames() {
+		return invalidFrames;
+	}
+
+	/**
+	 * sends the queued frames of all sessions, if no other thread does it already
+	 *
+	 * @return false if the medium does not accept a frame
+	 */
+	private boolean pump() {
+		boolean accepted = true;
+		while (hasQueuedFrames() && sendLock.tryLock()) {
+			try {
+				List<String[]> round;
+				while (!(round = nextRound()).isEmpty()) {
+					for (String[] frame : round) {
+						accepted &= medium.transmit(frame);
+					}
+				}
+			} finally {
+				sendLock.unlock();
+			}
+		}
+		return accepted;
+	}
+
+	private synchronized boolean hasQueuedFrames() {
+		for (Session session : sessions.values()) {
+			if (!session.sendQueue.isEmpty()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * takes up to its weight frames from the send queue of every session
+	 */
+	private synchronized List<String[]> nextRound() {
+		List<String[]> round = new ArrayList<String[]>();
+		for (Session session : sessions.values()) {
+			for (int i = 0; i < session.weight && !session.sendQueue.isEmpty(); i++) {
+				round.add(session.sendQueue.removeFirst());
+			}
+		}
+		if (!round.isEmpty()) {
+			notifyAll();
+		}
+		return round;
+	}
+
+	/**
+	 * puts all frames which are on the medium in the receive queues, must be
+	 * called with the monitor. if another thread reads the medium, it dispatches
+	 * the frames, so this method does nothing.
+	 */
+	private void readAvailable() {
+		if (!readLock.tryLock()) {
+			return;
+		}
+		try {
+			String[] frame;
+			while ((frame = medium.poll()) != null) {
+				dispatch(frame);
+			}
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	private void dispatch(String[] frame) {
+		int number = frame.length == 0 ? -1 : session(frame[frame.length - 1]);
+		if (number < 0) {
+			invalidFrames++;
+			return;
+		}
+		sessions.computeIfAbsent(number, Session::new).receiveQueue.addLast(Arrays.copyOf(frame, frame.length - 1));
+		notifyAll();
+	}
+
+	/**
+	 * waits until a frame arrives for any session or the time is over
+	 */
+	private void awaitFrame(long nanos) throws InterruptedException {
+		if (medium instanceof ConcurrentLine && readLock.tryLock()) {
+			// this thread reads the medium for all waiting sessions, the frame is
+			// dispatched before another thread may read the next one
+			try {
+				String[] frame = ((ConcurrentLine<String[]>) medium).receive(nanos, TimeUnit.NANOSECONDS);
+				synchronized (this) {
+					dispatch(frame);
+				}
+			} catch (NoSuchElementException e) {
+				return;
+			} finally {
+				readLock.unlock();
+			}
+		} else {
+			synchronized (this) {
+				TimeUnit.NANOSECONDS.timedWait(this, nanos);
+			}
+		}
+	}
+
+	/**
+	 * gives the tag of a session
+	 *
+	 * @param session the number of the session
+	 * @return TAG_LENGTH ternary symbols, the most significant digit first
+	 */
+	public static String tag(int session) {
+		char[] symbols = new char[TAG_LENGTH];
+		long value = session;
+		for (int i = TAG_LENGTH - 1; i >= 0; i--) {
+			symbols[i] = SYMBOLS[(int) (value % BASE)];
+			value /= BASE;
+		}
+		return new String(symbols);
+	}
+
+	/**
+	 * reads the session number from a tag
+	 *
+	 * @param tag the tag
+	 * @return the number of the session or -1 if the tag is wrong
+	 */
+	public static int session(String tag) {
+		if (tag == null || tag.length() != TAG_LENGTH) {
+			return -1;
+		}
+		long value = 0;
+		for (int i = 0; i < TAG_LENGTH; i++) {
+			char symbol = tag.charAt(i);
+			int digit = symbol == '-' ? 0 : symbol == '=' ? 1 : symbol == '+' ? 2 : -1;
+			if (digit < 0) {
+				return -1;
+			}
+			value = value * BASE + digit;
+		}
+		return value > Integer.MAX_VALUE ? -1 : (int) value;
+	}
+}
@@ -0,0 +1,57 @@
+package eit.medium;
+
+import java.io.IOException;
+import eit.linecode.SymbolSink;
+
+/**
+ * This class transmits every chunk of an encoder session as one element on a
+ * Line<br>
+ * the element is a String array with the symbols of the first, second and
+ * third data stream of the chunk, so the receiver gets the data streams piece
+ * by piece.
+ *
+ * @author Hamed Nakhei
+ */
+public class LineSymbolSink implements SymbolSink {
+
+	private static final int THREE_DATASTREAMS = 3;
+	private final Line<String[]> line;
+	private final StringBuilder[] chunk = new StringBuilder[THREE_DATASTREAMS];
+
+	/**
+	 * is the standard constructor
+	 *
+	 * @param line the Line on which the chunks are transmitted
+	 */
+	public LineSymbolSink(Line<String[]> line) {
+		this.line = line;
+		for (int i = 0; i < THREE_DATASTREAMS; i++) {
+			chunk[i] = new StringBuilder();
+		}
+	}
+
+	@Override
+	public void write(int dataStream, char[] symbols, int offset, int length) {
+		chunk[dataStream - 1].append(symbols, offset, length);
+	}
+
+	/**
+	 * transmits the collected chunk
+	 *
+	 * @throws IOException if the Line does not accept the chunk
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (chunk[0].length() == 0 && chunk[1].length() == 0 && chunk[2].length() == 0) {
+			return;
+		}
+		String[] element = new String[THREE_DATASTREAMS];
+		for (int i = 0; i < THREE_DATASTREAMS; i++) {
+			element[i] = chunk[i].toString();
+			chunk[i].setLength(0);
+		}
+		if (!line.transmit(element)) {
+			throw new IOException("Line does not accept the chunk!!!");
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package eit.medium;
+
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In this class, the data are stored in the order in which they are
+ * transmitted, for any number of sending and receiving threads<br>
+ * the elements are kept in a bounded {@link ArrayBlockingQueue}, so transmit
+ * waits if the cable is full and receive with a timeout waits if it is empty.
+ * if there is only one sender and one receiver, {@link SpscCable} does the same
+ * without a lock.
+ *
+ * @author Hamed Nakhei
+ * @param <E> is the data type which we put into the cable.
+ */
+public class MpmcCable<E> implements ConcurrentLine<E> {
+
+	/**
+	 * the capacity of the standard constructor
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private final BlockingQueue<E> data;
+
+	/**
+	 * is the standard constructor, the cable holds DEFAULT_CAPACITY elements
+	 */
+	public MpmcCable() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * creates a cable with a given capacity
+	 *
+	 * @param capacity the maximal number of elements in the cable
+	 */
+	public MpmcCable(int capacity) {
+		this.data = new ArrayBlockingQueue<E>(capacity);
+	}
+
+	/**
+	 * put the element in the cable, if the cable is full this method waits until
+	 * a receiver takes an element
+	 *
+	 * @return true if the element is in the cable, false if the thread is
+	 *         interrupted while waiting
+	 */
+	@Override
+	public boolean transmit(E element) {
+		try {
+			data.put(element);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	@Override
+	public E poll() {
+		return data.poll();
+	}
+
+	@Override
+	public E receive() throws NoSuchElementException {
+		E element = data.poll();
+		if (element == null) {
+			throw new NoSuchElementException();
+		}
+		return element;
+	}
+
+	@Override
+	public E receive(long timeout, TimeUnit unit) throws NoSuchElementException, InterruptedException {
+		E element = data.poll(timeout, unit);
+		if (element == null) {
+			throw new NoSuchElementException();
+		}
+		return element;
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> elements, int max) {
+		return data.drainTo(elements, max);
+	}
+
+	@Override
+	public boolean hasData() {
+		return !data.isEmpty();
+	}
+
+	/**
+	 * @return the number of elements in the cable
+	 */
+	public int size() {
+		return data.size();
+	}
+}
@@ -0,0 +1,215 @@
+package eit.medium;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.NoSuchElementException;
+import eit.linecode.TernaryBuffer;
+
+/**
+ * In this class, the encoded data streams are stored in the order in which they
+ * are transmitted, outside of the Java heap<br>
+ * every frame is copied into a direct ByteBuffer from a {@link SlabPool}:
+ * <li>the number of data streams</li>
+ * <li>the number of symbols of every data stream</li>
+ * <li>the packed symbols of every data stream, 32 in every long</li>
+ * so the waiting frames need about 4 times less memory than Strings and the
+ * garbage collector does not have to scan them. the Strings are only created
+ * again by receive. with {@link #receiveFrame()} the frame can be read without
+ * Strings, and its slab is given back to the pool by
+ * {@link Frame#close()}.<br>
+ * the cable can be used by several threads at the same time.
+ *
+ * @author Hamed Nakhei
+ */
+public class OffHeapCable implements Line<String[]> {
+
+	private static final int INT_SIZE = 4;
+
+	/**
+	 * one received frame, which is still in its slab
+	 */
+	public final class Frame implements AutoCloseable {
+		private ByteBuffer slab;
+
+		Frame(ByteBuffer slab) {
+			this.slab = slab;
+		}
+
+		private ByteBuffer slab() {
+			if (slab == null) {
+				throw new IllegalStateException("Frame is closed!!!");
+			}
+			return slab;
+		}
+
+		/**
+		 * @return the number of data streams
+		 */
+		public int dataStreams() {
+			return slab().getInt(0);
+		}
+
+		/**
+		 * @param dataStream the data stream 0, 1, ...
+		 * @return the number of symbols of the data stream
+		 */
+		public int length(int dataStream) {
+			return slab().getInt(INT_SIZE * (1 + dataStream));
+		}
+
+		/**
+		 * gives a read-only view of the packed symbols of a data stream, the view is
+		 * only valid until the frame is closed
+		 *
+		 * @param dataStream the data stream 0, 1, ...
+		 * @return the packed symbols, see
+		 *         {@link TernaryBuffer#writeTo(ByteBuffer)}
+		 */
+		public ByteBuffer packed(int dataStream) {
+			ByteBuffer view = slab().asReadOnlyBuffer();
+			int position = INT_SIZE * (1 + dataStreams());
+			for (int i = 0; i < dataStream; i++) {
+				position += TernaryBuffer.packedSize(length(i));
+			}
+			view.limit(position + TernaryBuffer.packedSize(length(dataStream))).position(position);
+			return view.slice();
+		}
+
+		/**
+		 * @param dataStream the data stream 0, 1, ...
+		 * @return a copy of the data stream on the heap
+		 */
+		public TernaryBuffer symbols(int dataStream) {
+			return TernaryBuffer.readFrom(packed(dataStream), length(dataStream));
+		}
+
+		/**
+		 * @return the data streams in the String form
+		 */
+		public String[] toStrings() {
+			String[] element = new String[dataStreams()];
+			for (int i = 0; i < element.length; i++) {
+				element[i] = TernaryBuffer.unpack(packed(i), length(i));
+			}
+			return element;
+		}
+
+		/**
+		 * gives the slab back to the pool
+		 */
+		@Override
+		public void close() {
+			if (slab != null) {
+				pool.release(slab);
+				slab = null;
+			}
+		}
+	}
+
+	private final SlabPool pool;
+	private final Deque<ByteBuffer> data = new ArrayDeque<ByteBuffer>();
+	private long storedBytes = 0;
+
+	/**
+	 * is the standard constructor, the cable has its own pool
+	 */
+	public OffHeapCable() {
+		this(new SlabPool());
+	}
+
+	/**
+	 * creates a cable which takes its slabs from a given pool
+	 *
+	 * @param pool the pool, it can be shared by several cables
+	 */
+	public OffHeapCable(SlabPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * the data streams are packed into a slab
+	 *
+	 * @throws eit.linecode.exception.DecodeException if a data stream contains a
+	 *                                                character which is not
+	 *                                                ternary
+	 */
+	@Override
+	public boolean transmit(String[] element) {
+		long size = INT_SIZE * (1L + element.length);
+		for (String dataStream : element) {
+			size += TernaryBuffer.packedSize(dataStream.length());
+		}
+		if (size > Integer.MAX_VALUE) {
+			return false;
+		}
+		ByteBuffer slab = pool.acquire((int) size);
+		try {
+			slab.putInt(element.length);
+			for (String dataStream : element) {
+				slab.putInt(dataStream.length());
+			}
+			for (String dataStream : element) {
+				TernaryBuffer.pack(dataStream, slab);
+			}
+		} catch (RuntimeException e) {
+			pool.release(slab);
+			throw e;
+		}
+		slab.flip();
+		synchronized (this) {
+			data.addLast(slab);
+			storedBytes += slab.limit();
+		}
+		return true;
+	}
+
+	/**
+	 * the data streams are converted back to the String form and the slab is
+	 * given back to the pool
+	 */
+	@Override
+	public String[] receive() throws NoSuchElementException {
+		try (Frame frame = receiveFrame()) {
+			return frame.toStrings();
+		}
+	}
+
+	/**
+	 * fetch the next frame without converting it, the frame must be closed to
+	 * give its slab back to the pool
+	 *
+	 * @return the frame
+	 * @throws NoSuchElementException if there are no datas in cable
+	 */
+	public Frame receiveFrame() throws NoSuchElementException {
+		ByteBuffer slab;
+		synchronized (this) {
+			slab = data.pollFirst();
+			if (slab == null) {
+				throw new NoSuchElementException();
+			}
+			storedBytes -= slab.limit();
+		}
+		return new Frame(slab);
+	}
+
+	@Override
+	public synchronized boolean hasData() {
+		return !data.isEmpty();
+	}
+
+	/**
+	 * @return the number of bytes of the waiting frames outside of the heap
+	 */
+	public synchronized long getStoredBytes() {
+		return storedBytes;
+	}
+
+	/**
+	 * @return the pool of the slabs
+	 */
+	public SlabPool getPool() {
+		return pool;
+	}
+}
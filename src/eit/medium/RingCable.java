@@ -0,0 +1,268 @@
+package eit.medium;
+
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In this class, the data are stored in the order in which they are
+ * transmitted, like in {@link Cable}, but in a ring buffer with a fixed
+ * capacity<br>
+ * transmit and receive only move the head or the tail of the ring, so both
+ * need constant time, no matter how many elements are waiting. because the
+ * capacity is fixed, the memory of the cable is limited, even if a very large
+ * file is transmitted.<br>
+ * what happens if the cable is full is decided by the {@link FullPolicy}:
+ * <li>BLOCK: transmit waits until a receiver takes an element</li>
+ * <li>FAIL: transmit returns false at once</li>
+ * <li>DROP_OLDEST: the oldest element is dropped to make room</li>
+ * the cable can be used by several threads at the same time, and a receiver
+ * can wait for the next element with {@link #receive(long, TimeUnit)}.
+ *
+ * @author Hamed Nakhei
+ * @param <E> is the data type which we put into the cable.
+ */
+public class RingCable<E> implements ConcurrentLine<E> {
+
+	/**
+	 * what transmit does if the cable is full
+	 */
+	public enum FullPolicy {
+		/** transmit waits until there is room in the cable */
+		BLOCK,
+		/** transmit returns false and the element is not put in the cable */
+		FAIL,
+		/** the oldest element in the cable is dropped */
+		DROP_OLDEST
+	}
+
+	/**
+	 * the capacity of the standard constructor
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private final Object[] elements;
+	private final FullPolicy policy;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notFull = lock.newCondition();
+	private final Condition notEmpty = lock.newCondition();
+	// the index of the oldest element
+	private int head = 0;
+	private int count = 0;
+	private long dropped = 0;
+
+	/**
+	 * is the standard constructor, the cable holds DEFAULT_CAPACITY elements and
+	 * transmit waits if it is full
+	 */
+	public RingCable() {
+		this(DEFAULT_CAPACITY, FullPolicy.BLOCK);
+	}
+
+	/**
+	 * creates a cable with a given capacity
+	 *
+	 * @param capacity the maximal number of elements in the cable
+	 * @param policy   what transmit does if the cable is full
+	 * @throws IllegalArgumentException if the capacity is less than 1
+	 */
+	public RingCable(int capacity, FullPolicy policy) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1!!!");
+		}
+		this.elements = new Object[capacity];
+		this.policy = policy;
+	}
+
+	/**
+	 * put the element in the cable, if the cable is full the {@link FullPolicy}
+	 * decides what happens
+	 *
+	 * @return true if the element is in the cable, false if the cable is full and
+	 *         the policy is FAIL or the waiting thread is interrupted
+	 */
+	@Override
+	public boolean transmit(E element) {
+		lock.lock();
+		try {
+			if (!add(element)) {
+				return false;
+			}
+			notEmpty.signal();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * put all elements in the cable with one lock, the {@link FullPolicy} is used
+	 * for every element
+	 */
+	@Override
+	public int transmitAll(Collection<? extends E> batch) {
+		int transmitted = 0;
+		lock.lock();
+		try {
+			for (E element : batch) {
+				if (!add(element)) {
+					break;
+				}
+				transmitted++;
+			}
+			return transmitted;
+		} finally {
+			if (transmitted > 0) {
+				notEmpty.signalAll();
+			}
+			lock.unlock();
+		}
+	}
+
+	// must be called with the lock
+	private boolean add(E element) {
+		while (count == elements.length) {
+			if (policy == FullPolicy.FAIL) {
+				return false;
+			} else if (policy == FullPolicy.DROP_OLDEST) {
+				removeFirst();
+				dropped++;
+			} else {
+				try {
+					// the receivers must know about the elements which are already added
+					notEmpty.signalAll();
+					notFull.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}
+		}
+		elements[(head + count) % elements.length] = element;
+		count++;
+		return true;
+	}
+
+	@Override
+	public E receive() throws NoSuchElementException {
+		E element = poll();
+		if (element == null) {
+			throw new NoSuchElementException();
+		}
+		return element;
+	}
+
+	@Override
+	public E poll() {
+		lock.lock();
+		try {
+			if (count == 0) {
+				return null;
+			}
+			E element = removeFirst();
+			notFull.signal();
+			return element;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public E receive(long timeout, TimeUnit unit) throws NoSuchElementException, InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while (count == 0) {
+				if (nanos <= 0) {
+					throw new NoSuchElementException();
+				}
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			E element = removeFirst();
+			notFull.signal();
+			return element;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * fetch the waiting elements with one lock
+	 */
+	@Override
+	public int drainTo(Collection<? super E> batch, int max) {
+		lock.lock();
+		try {
+			int drained = Math.min(max, count);
+			for (int i = 0; i < drained; i++) {
+				batch.add(removeFirst());
+			}
+			if (drained > 0) {
+				notFull.signalAll();
+			}
+			return drained;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private E removeFirst() {
+		E element = (E) elements[head];
+		// the slot is cleared, so the element can be collected
+		elements[head] = null;
+		head = head == elements.length - 1 ? 0 : head + 1;
+		count--;
+		return element;
+	}
+
+	@Override
+	public boolean hasData() {
+		lock.lock();
+		try {
+			return count > 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of elements in the cable
+	 */
+	public int size() {
+		lock.lock();
+		try {
+			return count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the maximal number of elements in the cable
+	 */
+	public int capacity() {
+		return elements.length;
+	}
+
+	/**
+	 * @return the policy if the cable is full
+	 */
+	public FullPolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * @return the number of elements which are dropped by the DROP_OLDEST policy
+	 */
+	public long getDropped() {
+		lock.lock();
+		try {
+			return dropped;
+		} finally {
+			lock.unlock();
+		}
+	}
+}
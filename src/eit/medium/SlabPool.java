@@ -0,0 +1,139 @@
+package eit.medium;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * This class lends direct ByteBuffers, the slabs, and takes them back<br>
+ * the slabs have size classes which are powers of two from MIN_SLAB_SIZE to
+ * MAX_SLAB_SIZE bytes. a request gets a slab of the smallest class which is
+ * large enough. a slab which is given back is kept for the next request of its
+ * class as long as the pool holds less than its limit, so a long transfer
+ * allocates direct memory only at the beginning. a request which is larger
+ * than MAX_SLAB_SIZE gets a slab of its own size, which is not kept.<br>
+ * the pool can be used by several threads at the same time.
+ *
+ * @author Hamed Nakhei
+ */
+public class SlabPool {
+
+	/**
+	 * the size of the smallest slab in bytes
+	 */
+	public static final int MIN_SLAB_SIZE = 256;
+	/**
+	 * the size of the largest pooled slab in bytes
+	 */
+	public static final int MAX_SLAB_SIZE = 1024 * 1024;
+	/**
+	 * the limit of the standard constructor in bytes
+	 */
+	public static final long DEFAULT_LIMIT = 64L * 1024 * 1024;
+
+	private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_SLAB_SIZE);
+	private static final int CLASSES = Integer.numberOfTrailingZeros(MAX_SLAB_SIZE) - MIN_SHIFT + 1;
+
+	private final long limit;
+	private final List<Deque<ByteBuffer>> free = new ArrayList<Deque<ByteBuffer>>();
+	private long pooledBytes = 0;
+	private long lentBytes = 0;
+	private long allocations = 0;
+	private long reuses = 0;
+
+	/**
+	 * is the standard constructor, the pool keeps up to DEFAULT_LIMIT bytes
+	 */
+	public SlabPool() {
+		this(DEFAULT_LIMIT);
+	}
+
+	/**
+	 * creates a pool with a given limit
+	 *
+	 * @param limit the maximal number of bytes of the slabs which are kept
+	 */
+	public SlabPool(long limit) {
+		this.limit = limit;
+		for (int i = 0; i < CLASSES; i++) {
+			free.add(new ArrayDeque<ByteBuffer>());
+		}
+	}
+
+	private static int sizeClass(int size) {
+		int shift = 32 - Integer.numberOfLeadingZeros(Math.max(size, MIN_SLAB_SIZE) - 1);
+		return shift - MIN_SHIFT;
+	}
+
+	/**
+	 * lends a slab
+	 *
+	 * @param size the number of bytes which are needed
+	 * @return a cleared direct ByteBuffer whose limit is size
+	 */
+	public synchronized ByteBuffer acquire(int size) {
+		ByteBuffer slab;
+		if (size > MAX_SLAB_SIZE) {
+			slab = ByteBuffer.allocateDirect(size);
+			allocations++;
+		} else {
+			int sizeClass = sizeClass(size);
+			slab = free.get(sizeClass).pollFirst();
+			if (slab == null) {
+				slab = ByteBuffer.allocateDirect(MIN_SLAB_SIZE << sizeClass);
+				allocations++;
+			} else {
+				pooledBytes -= slab.capacity();
+				reuses++;
+			}
+		}
+		lentBytes += slab.capacity();
+		slab.clear().limit(size);
+		return slab;
+	}
+
+	/**
+	 * takes a slab back, the slab must not be used after this call
+	 *
+	 * @param slab a slab from {@link #acquire(int)}
+	 */
+	public synchronized void release(ByteBuffer slab) {
+		lentBytes -= slab.capacity();
+		int capacity = slab.capacity();
+		if (capacity <= MAX_SLAB_SIZE && Integer.bitCount(capacity) == 1 && capacity >= MIN_SLAB_SIZE
+				&& pooledBytes + capacity <= limit) {
+			free.get(sizeClass(capacity)).addFirst(slab);
+			pooledBytes += capacity;
+		}
+	}
+
+	/**
+	 * @return the number of bytes of the slabs which are kept for reuse
+	 */
+	public synchronized long getPooledBytes() {
+		return pooledBytes;
+	}
+
+	/**
+	 * @return the number of bytes of the slabs which are lent
+	 */
+	public synchronized long getLentBytes() {
+		return lentBytes;
+	}
+
+	/**
+	 * @return the number of slabs which are allocated
+	 */
+	public synchronized long getAllocations() {
+		return allocations;
+	}
+
+	/**
+	 * @return the number of requests which got a kept slab
+	 */
+	public synchronized long getReuses() {
+		return reuses;
+	}
+}
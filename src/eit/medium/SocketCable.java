@@ -0,0 +1,362 @@
+package eit.medium;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import eit.linecode.TernaryBuffer;
+import eit.linecode.exception.DecodeException;
+
+/**
+ * In this class, the encoded data streams are sent over a socket, so the sender
+ * and the receiver can run in different processes<br>
+ * every frame is sent with a length prefix:
+ * <li>the number of bytes which follow the prefix</li>
+ * <li>the number of data streams</li>
+ * <li>the number of symbols of every data stream</li>
+ * <li>the packed symbols of every data stream, see
+ * {@link TernaryBuffer#writeTo(ByteBuffer)}</li>
+ * the header and the symbols are kept in direct buffers and written together
+ * with one gathering write. the receiver reads as many bytes as the socket
+ * has and cuts them into frames.<br>
+ * the socket can be a TCP socket or, from Java 16 on, a Unix domain socket.
+ * {@link #listen(SocketAddress)} and {@link #accept(ServerSocketChannel)}
+ * create the receiving side, {@link #connect(SocketAddress)} the sending side.
+ * both sides can transmit and receive.<br>
+ * transmit returns false if the socket fails. receive with a timeout waits for
+ * the next frame, it fails at once if the other side has closed the socket.
+ *
+ * @author Hamed Nakhei
+ */
+public class SocketCable implements ConcurrentLine<String[]>, Closeable {
+
+	/**
+	 * the largest frame in bytes which is sent or accepted
+	 */
+	public static final int MAX_FRAME_SIZE = 256 * 1024 * 1024;
+
+	private static final int INT_SIZE = 4;
+	private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+	private static final int INITIAL_HEADER_SIZE = 64;
+	private static final int SYMBOLS_PER_BYTE = 4;
+
+	private final SocketChannel channel;
+	private final Selector readSelector;
+	private final Selector writeSelector;
+	private final Object readLock = new Object();
+	private final Object writeLock = new Object();
+	private ByteBuffer header = ByteBuffer.allocateDirect(INITIAL_HEADER_SIZE);
+	private ByteBuffer body = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+	// the bytes which are read but not cut into frames, in fill mode
+	private ByteBuffer input = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+	// a frame which is read by hasData but not received yet
+	private TernaryBuffer[] pending;
+	private boolean endOfStream = false;
+
+	/**
+	 * creates a cable on a connected socket
+	 *
+	 * @param channel the connected socket, it is switched to non-blocking mode
+	 * @throws IOException if the socket cannot be prepared
+	 */
+	public SocketCable(SocketChannel channel) throws IOException {
+		this.channel = channel;
+		channel.configureBlocking(false);
+		if (channel.getLocalAddress() instanceof InetSocketAddress) {
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		}
+		this.readSelector = Selector.open();
+		this.writeSelector = Selector.open();
+		channel.register(readSelector, SelectionKey.OP_READ);
+		channel.register(writeSelector, SelectionKey.OP_WRITE);
+	}
+
+	/**
+	 * connects to a cable which waits with {@link #accept(ServerSocketChannel)}
+	 *
+	 * @param remote an InetSocketAddress or a UnixDomainSocketAddress
+	 * @return the connected cable
+	 * @throws IOException if the connection fails
+	 */
+	public static SocketCable connect(SocketAddress remote) throws IOException {
+		return new SocketCable(SocketChannel.open(remote));
+	}
+
+	/**
+	 * opens a server socket for {@link #accept(ServerSocketChannel)}
+	 *
+	 * @param local an InetSocketAddress or a UnixDomainSocketAddress, the file of
+	 *              a Unix domain socket must not exist
+	 * @return the bound server socket
+	 * @throws IOException if the address cannot be bound
+	 */
+	public static ServerSocketChannel listen(SocketAddress local) throws IOException {
+		ServerSocketChannel server;
+		if (local instanceof InetSocketAddress) {
+			server = ServerSocketChannel.open();
+		} else {
+			// the UNIX family exists from Java 16 on
+			server = ServerSocketChannel.open(StandardProtocolFamily.valueOf("UNIX"));
+		}
+		return server.bind(local);
+	}
+
+	/**
+	 * waits for the next sender
+	 *
+	 * @param server the server socket from {@link #listen(SocketAddress)}
+	 * @return the connected cable
+	 * @throws IOException if the connection fails
+	 */
+	public static SocketCable accept(ServerSocketChannel server) throws IOException {
+		return new SocketCable(server.accept());
+	}
+
+	/**
+	 * the data streams are packed before they are sent
+	 */
+	@Override
+	public boolean transmit(String[] element) {
+		TernaryBuffer[] packed = new TernaryBuffer[element.length];
+		for (int i = 0; i < element.length; i++) {
+			packed[i] = TernaryBuffer.valueOf(element[i]);
+		}
+		return transmit(packed);
+	}
+
+	/**
+	 * sends packed data streams, this method waits until the whole frame is
+	 * written to the socket
+	 *
+	 * @param element the packed data streams
+	 * @return true if is successful, false if the frame is too large or the socket
+	 *         fails
+	 */
+	public boolean transmit(TernaryBuffer[] element) {
+		long bodySize = 0;
+		for (TernaryBuffer dataStream : element) {
+			bodySize += TernaryBuffer.packedSize(dataStream.length());
+		}
+		int headerSize = INT_SIZE * (2 + element.length);
+		if (headerSize - INT_SIZE + bodySize > MAX_FRAME_SIZE) {
+			return false;
+		}
+		synchronized (writeLock) {
+			header = ensureCapacity(header, headerSize);
+			body = ensureCapacity(body, (int) bodySize);
+			header.clear();
+			header.putInt(headerSize - INT_SIZE + (int) bodySize);
+			header.putInt(element.length);
+			body.clear();
+			for (TernaryBuffer dataStream : element) {
+				header.putInt(dataStream.length());
+				dataStream.writeTo(body);
+			}
+			header.flip();
+			body.flip();
+			ByteBuffer[] frame = { header, body };
+			try {
+				while (header.hasRemaining() || body.hasRemaining()) {
+					if (channel.write(frame) == 0) {
+						writeSelector.select();
+						writeSelector.selectedKeys().clear();
+					}
+				}
+			} catch (IOException e) {
+				return false;
+			}
+			return true;
+		}
+	}
+
+	private static ByteBuffer ensureCapacity(ByteBuffer buffer, int size) {
+		return buffer.capacity() >= size ? buffer : ByteBuffer.allocateDirect(Math.max(size, buffer.capacity() * 2));
+	}
+
+	/**
+	 * @throws UncheckedIOException if the socket fails or a frame is wrong
+	 */
+	@Override
+	public String[] poll() {
+		TernaryBuffer[] packed = next(0);
+		return packed == null ? null : toStrings(packed);
+	}
+
+	@Override
+	public String[] receive() throws NoSuchElementException {
+		String[] element = poll();
+		if (element == null) {
+			throw new NoSuchElementException();
+		}
+		return element;
+	}
+
+	/**
+	 * @throws NoSuchElementException if there is no frame after the timeout or the
+	 *                                other side has closed the socket
+	 * @throws UncheckedIOException   if the socket fails or a frame is wrong
+	 */
+	@Override
+	public String[] receive(long timeout, TimeUnit unit) throws NoSuchElementException, InterruptedException {
+		TernaryBuffer[] packed = next(Math.max(unit.toNanos(timeout), 1));
+		if (packed == null) {
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+			throw new NoSuchElementException();
+		}
+		return toStrings(packed);
+	}
+
+	/**
+	 * @throws UncheckedIOException if the socket fails or a frame is wrong
+	 */
+	@Override
+	public boolean hasData() {
+		synchronized (readLock) {
+			if (pending == null) {
+				pending = next(0);
+			}
+			return pending != null;
+		}
+	}
+
+	/**
+	 * @return true if the other side has closed the socket and all frames are
+	 *         received
+	 */
+	public boolean isEndOfStream() {
+		synchronized (readLock) {
+			return endOfStream && pending == null && input.position() == 0;
+		}
+	}
+
+	private static String[] toStrings(TernaryBuffer[] packed) {
+		String[] element = new String[packed.length];
+		for (int i = 0; i < packed.length; i++) {
+			element[i] = packed[i].toString();
+		}
+		return element;
+	}
+
+	/**
+	 * reads the next frame
+	 *
+	 * @param timeout nanoseconds to wait, 0 if this method must not wait
+	 * @return the frame or null if there is none in time or the socket is closed
+	 */
+	private TernaryBuffer[] next(long timeout) {
+		synchronized (readLock) {
+			if (pending != null) {
+				TernaryBuffer[] frame = pending;
+				pending = null;
+				return frame;
+			}
+			long deadline = System.nanoTime() + timeout;
+			try {
+				while (true) {
+					TernaryBuffer[] frame = cutFrame();
+					if (frame != null || endOfStream) {
+						return frame;
+					}
+					int read = channel.read(input);
+					if (read < 0) {
+						endOfStream = true;
+						if (input.position() > 0) {
+							throw new IOException("Socket is closed inside a frame!!!");
+						}
+					} else if (read == 0) {
+						long left = deadline - System.nanoTime();
+						if (timeout == 0 || left <= 0 || Thread.currentThread().isInterrupted()) {
+							return null;
+						}
+						readSelector.select(Math.max(TimeUnit.NANOSECONDS.toMillis(left), 1));
+						readSelector.selectedKeys().clear();
+					}
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * cuts the next frame from the read bytes
+	 *
+	 * @return the frame or null if it is not complete yet
+	 * @throws IOException if the frame is wrong, a wrong frame with a correct
+	 *                     size is removed, so the next frame can be received
+	 */
+	private TernaryBuffer[] cutFrame() throws IOException {
+		if (input.position() < INT_SIZE) {
+			return null;
+		}
+		int frameSize = input.getInt(0);
+		if (frameSize < INT_SIZE || frameSize > MAX_FRAME_SIZE) {
+			throw new IOException("Wrong frame size!!!");
+		}
+		if (input.position() < INT_SIZE + frameSize) {
+			if (input.capacity() < INT_SIZE + frameSize) {
+				ByteBuffer larger = ByteBuffer.allocateDirect(INT_SIZE + frameSize);
+				input.flip();
+				larger.put(input);
+				input = larger;
+			}
+			return null;
+		}
+		input.flip();
+		input.position(INT_SIZE);
+		int end = INT_SIZE + frameSize;
+		try {
+			int count = input.getInt();
+			if (count < 0 || INT_SIZE * (1L + count) > frameSize) {
+				throw new IOException("Wrong frame header!!!");
+			}
+			int[] lengths = new int[count];
+			for (int i = 0; i < count; i++) {
+				lengths[i] = input.getInt();
+			}
+			TernaryBuffer[] frame = new TernaryBuffer[count];
+			for (int i = 0; i < count; i++) {
+				if (lengths[i] < 0 || lengths[i] > (long) SYMBOLS_PER_BYTE * (end - input.position())) {
+					throw new IOException("Wrong frame header!!!");
+				}
+				frame[i] = TernaryBuffer.readFrom(input, lengths[i]);
+			}
+			if (input.position() != end) {
+				throw new IOException("Wrong frame size!!!");
+			}
+			return frame;
+		} catch (DecodeException | BufferUnderflowException e) {
+			throw new IOException("Wrong frame!!!", e);
+		} finally {
+			// a wrong frame is removed too, so the next frame starts at the right byte
+			input.position(end);
+			input.compact();
+		}
+	}
+
+	/**
+	 * closes the socket, the other side receives the frames which are sent and
+	 * then the end of the stream
+	 *
+	 * @throws IOException if the socket cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		readSelector.close();
+		writeSelector.close();
+		channel.close();
+	}
+}
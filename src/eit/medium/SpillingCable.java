@@ -0,0 +1,285 @@
+package eit.medium;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.NoSuchElementException;
+import eit.linecode.TernaryBuffer;
+
+/**
+ * In this class, the encoded data streams are stored in the order in which they
+ * are transmitted, in memory as long as they fit and on disk after that<br>
+ * the data streams are packed in {@link TernaryBuffer}s like in
+ * {@link SymbolCable}. as soon as the packed frames in memory would be larger
+ * than the memory threshold, the next frames are spilled to segment files which
+ * are mapped into memory:
+ * <li>a frame is appended to the last segment, a new segment is created if it
+ * does not fit</li>
+ * <li>the segments are read from the beginning, in the order in which they are
+ * written</li>
+ * <li>a segment is deleted as soon as all of its frames are received</li>
+ * while frames are on disk, new frames are spilled too, so the order is kept.
+ * the sender can put much more data in the cable than the heap can hold.<br>
+ * a frame in a segment consists of the number of data streams, the number of
+ * symbols of every data stream and the packed symbols of every data stream.
+ * <br>
+ * the operating system releases the disk space of a deleted segment when its
+ * mapping is collected. close deletes all segments which are left.
+ *
+ * @author Hamed Nakhei
+ */
+public class SpillingCable implements Line<String[]>, Closeable {
+
+	/**
+	 * the memory threshold of the standard constructor in bytes
+	 */
+	public static final long DEFAULT_MEMORY_THRESHOLD = 64L * 1024 * 1024;
+	/**
+	 * the size of a segment file of the standard constructor in bytes
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+	private static final int INT_SIZE = 4;
+
+	/**
+	 * one mapped segment file
+	 */
+	private static class Segment {
+		private final Path path;
+		private final FileChannel channel;
+		private final MappedByteBuffer buffer;
+		private int writePosition = 0;
+		private int readPosition = 0;
+
+		Segment(Path path, int size) throws IOException {
+			this.path = path;
+			this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+
+		private void delete() throws IOException {
+			channel.close();
+			Files.deleteIfExists(path);
+		}
+	}
+
+	private final Path directory;
+	private final long memoryThreshold;
+	private final int segmentSize;
+	private final Deque<TernaryBuffer[]> memory = new ArrayDeque<TernaryBuffer[]>();
+	private final Deque<Segment> segments = new ArrayDeque<Segment>();
+	private long memoryBytes = 0;
+	private long spilledFrames = 0;
+	private long totalSpilledFrames = 0;
+	private boolean closed = false;
+
+	/**
+	 * is the standard constructor, the segments are created in the temporary
+	 * directory
+	 */
+	public SpillingCable() {
+		this(Path.of(System.getProperty("java.io.tmpdir")), DEFAULT_MEMORY_THRESHOLD, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * creates a cable with a given memory threshold
+	 *
+	 * @param directory       the directory for the segment files
+	 * @param memoryThreshold the maximal number of bytes of the packed frames in
+	 *                        memory
+	 * @param segmentSize     the size of a segment file in bytes, a larger frame
+	 *                        gets a segment of its own size
+	 * @throws IllegalArgumentException if the threshold is negative or the segment
+	 *                                  size is not positive
+	 */
+	public SpillingCable(Path directory, long memoryThreshold, int segmentSize) {
+		if (memoryThreshold < 0 || segmentSize <= 0) {
+			throw new IllegalArgumentException("Wrong threshold or segment size!!!");
+		}
+		this.directory = directory;
+		this.memoryThreshold = memoryThreshold;
+		this.segmentSize = segmentSize;
+	}
+
+	/**
+	 * the data streams are packed before they are put in the cable
+	 */
+	@Override
+	public boolean transmit(String[] element) {
+		TernaryBuffer[] packed = new TernaryBuffer[element.length];
+		for (int i = 0; i < element.length; i++) {
+			packed[i] = TernaryBuffer.valueOf(element[i]);
+		}
+		return transmit(packed);
+	}
+
+	/**
+	 * put packed data streams in the cable, in memory or in a segment file
+	 *
+	 * @param element the packed data streams
+	 * @return true if is successful, false if the cable is closed or the segment
+	 *         file cannot be written
+	 */
+	public synchronized boolean transmit(TernaryBuffer[] element) {
+		if (closed) {
+			return false;
+		}
+		long size = frameSize(element);
+		if (spilledFrames == 0 && memoryBytes + size <= memoryThreshold) {
+			memory.addLast(element);
+			memoryBytes += size;
+			return true;
+		}
+		try {
+			spill(element, (int) size);
+		} catch (IOException e) {
+			return false;
+		}
+		return true;
+	}
+
+	private static long frameSize(TernaryBuffer[] element) {
+		long size = INT_SIZE + (long) INT_SIZE * element.length;
+		for (TernaryBuffer dataStream : element) {
+			size += TernaryBuffer.packedSize(dataStream.length());
+		}
+		return size;
+	}
+
+	private void spill(TernaryBuffer[] element, int size) throws IOException {
+		Segment segment = segments.peekLast();
+		if (segment == null || segment.buffer.capacity() - segment.writePosition < size) {
+			segment = new Segment(Files.createTempFile(directory, "cable-", ".seg"), Math.max(segmentSize, size));
+			segments.addLast(segment);
+		}
+		segment.buffer.position(segment.writePosition);
+		segment.buffer.putInt(element.length);
+		for (TernaryBuffer dataStream : element) {
+			segment.buffer.putInt(dataStream.length());
+		}
+		for (TernaryBuffer dataStream : element) {
+			dataStream.writeTo(segment.buffer);
+		}
+		segment.writePosition = segment.buffer.position();
+		spilledFrames++;
+		totalSpilledFrames++;
+	}
+
+	/**
+	 * the data streams are converted back to the String form
+	 */
+	@Override
+	public String[] receive() throws NoSuchElementException {
+		TernaryBuffer[] packed = receiveSymbols();
+		String[] element = new String[packed.length];
+		for (int i = 0; i < packed.length; i++) {
+			element[i] = packed[i].toString();
+		}
+		return element;
+	}
+
+	/**
+	 * fetch packed data streams from the cable without any conversion, first from
+	 * memory and then from the segment files
+	 *
+	 * @return the packed data streams
+	 * @throws NoSuchElementException if there are no datas in cable
+	 */
+	public synchronized TernaryBuffer[] receiveSymbols() throws NoSuchElementException {
+		if (!memory.isEmpty()) {
+			TernaryBuffer[] element = memory.removeFirst();
+			memoryBytes -= frameSize(element);
+			return element;
+		}
+		if (spilledFrames == 0) {
+			throw new NoSuchElementException();
+		}
+		Segment segment = segments.peekFirst();
+		segment.buffer.position(segment.readPosition);
+		TernaryBuffer[] element = new TernaryBuffer[segment.buffer.getInt()];
+		int[] lengths = new int[element.length];
+		for (int i = 0; i < element.length; i++) {
+			lengths[i] = segment.buffer.getInt();
+		}
+		for (int i = 0; i < element.length; i++) {
+			element[i] = TernaryBuffer.readFrom(segment.buffer, lengths[i]);
+		}
+		segment.readPosition = segment.buffer.position();
+		spilledFrames--;
+		// a segment is not needed anymore if it is read up to the end
+		if (segment.readPosition == segment.writePosition) {
+			segments.removeFirst();
+			try {
+				segment.delete();
+			} catch (IOException e) {
+				segment.path.toFile().deleteOnExit();
+			}
+		}
+		return element;
+	}
+
+	@Override
+	public synchronized boolean hasData() {
+		return !memory.isEmpty() || spilledFrames > 0;
+	}
+
+	/**
+	 * @return the number of bytes of the packed frames in memory
+	 */
+	public synchronized long getMemoryBytes() {
+		return memoryBytes;
+	}
+
+	/**
+	 * @return the number of frames which are on disk and not received yet
+	 */
+	public synchronized long getSpilledFrames() {
+		return spilledFrames;
+	}
+
+	/**
+	 * @return the number of frames which are spilled to disk since the cable is
+	 *         created
+	 */
+	public synchronized long getTotalSpilledFrames() {
+		return totalSpilledFrames;
+	}
+
+	/**
+	 * @return the number of segment files
+	 */
+	public synchronized int getSegmentCount() {
+		return segments.size();
+	}
+
+	/**
+	 * deletes all frames and segment files, the cable does not accept new frames
+	 * anymore
+	 *
+	 * @throws IOException if a segment file cannot be deleted
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		closed = true;
+		memory.clear();
+		memoryBytes = 0;
+		spilledFrames = 0;
+		IOException failure = null;
+		while (!segments.isEmpty()) {
+			try {
+				segments.removeFirst().delete();
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+}
@@ -0,0 +1,212 @@
+package eit.medium;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In this class, the data are stored in the order in which they are
+ * transmitted, in a ring buffer for exactly one sending and one receiving
+ * thread<br>
+ * the sender only writes the tail and the receiver only writes the head, so no
+ * lock is needed. an element is published by the release write of the tail and
+ * its slot is given back by the release write of the head.<br>
+ * if the ring is full, transmit waits until the receiver takes an element. if
+ * the ring is empty, receive with a timeout waits until the sender transmits
+ * one. both first spin a little and then sleep for short periods, so a waiting
+ * thread does not occupy a core.<br>
+ * if more than one thread transmits or receives, use {@link MpmcCable}.
+ *
+ * @author Hamed Nakhei
+ * @param <E> is the data type which we put into the cable.
+ */
+public class SpscCable<E> implements ConcurrentLine<E> {
+
+	/**
+	 * the capacity of the standard constructor
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private static final int SPINS = 100;
+	private static final long PARK_NANOS = 50_000L;
+
+	private final Object[] elements;
+	private final int mask;
+	// the next element which is received, only written by the receiver
+	private final AtomicLong head = new AtomicLong();
+	// the next free slot, only written by the sender
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * is the standard constructor, the cable holds DEFAULT_CAPACITY elements
+	 */
+	public SpscCable() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * creates a cable with a given capacity
+	 *
+	 * @param capacity the maximal number of elements in the cable, it is rounded
+	 *                 up to a power of two
+	 * @throws IllegalArgumentException if the capacity is less than 1 or too large
+	 */
+	public SpscCable(int capacity) {
+		if (capacity < 1 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("Wrong capacity!!!");
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.elements = new Object[size];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * put the element in the cable, if the cable is full this method waits until
+	 * the receiver takes an element
+	 *
+	 * @return true if the element is in the cable, false if the thread is
+	 *         interrupted while waiting
+	 * @throws NullPointerException if the element is null, because null means an
+	 *                              empty cable for poll
+	 */
+	@Override
+	public boolean transmit(E element) {
+		Objects.requireNonNull(element);
+		long t = tail.get();
+		int spins = 0;
+		while (t - head.get() == elements.length) {
+			if (Thread.currentThread().isInterrupted()) {
+				return false;
+			}
+			spins = backOff(spins);
+		}
+		elements[(int) t & mask] = element;
+		tail.lazySet(t + 1);
+		return true;
+	}
+
+	/**
+	 * put all elements in the cable, the tail is published once for every group of
+	 * elements which fit into the free slots
+	 *
+	 * @throws NullPointerException if an element is null
+	 */
+	@Override
+	public int transmitAll(Collection<? extends E> batch) {
+		Iterator<? extends E> iterator = batch.iterator();
+		long t = tail.get();
+		int transmitted = 0;
+		int spins = 0;
+		while (iterator.hasNext()) {
+			long free = elements.length - (t - head.get());
+			if (free == 0) {
+				if (Thread.currentThread().isInterrupted()) {
+					break;
+				}
+				spins = backOff(spins);
+				continue;
+			}
+			for (long i = 0; i < free && iterator.hasNext(); i++) {
+				elements[(int) t & mask] = Objects.requireNonNull(iterator.next());
+				t++;
+				transmitted++;
+			}
+			tail.lazySet(t);
+		}
+		return transmitted;
+	}
+
+	@Override
+	public E poll() {
+		long h = head.get();
+		if (h == tail.get()) {
+			return null;
+		}
+		int index = (int) h & mask;
+		@SuppressWarnings("unchecked")
+		E element = (E) elements[index];
+		// the slot is cleared, so the element can be collected
+		elements[index] = null;
+		head.lazySet(h + 1);
+		return element;
+	}
+
+	/**
+	 * fetch the waiting elements, the head is published once at the end
+	 */
+	@Override
+	public int drainTo(Collection<? super E> batch, int max) {
+		long h = head.get();
+		int drained = (int) Math.min(max, tail.get() - h);
+		for (int i = 0; i < drained; i++) {
+			int index = (int) (h + i) & mask;
+			@SuppressWarnings("unchecked")
+			E element = (E) elements[index];
+			elements[index] = null;
+			batch.add(element);
+		}
+		head.lazySet(h + drained);
+		return drained;
+	}
+
+	@Override
+	public E receive() throws NoSuchElementException {
+		E element = poll();
+		if (element == null) {
+			throw new NoSuchElementException();
+		}
+		return element;
+	}
+
+	@Override
+	public E receive(long timeout, TimeUnit unit) throws NoSuchElementException, InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		int spins = 0;
+		E element;
+		while ((element = poll()) == null) {
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+			if (System.nanoTime() - deadline >= 0) {
+				throw new NoSuchElementException();
+			}
+			spins = backOff(spins);
+		}
+		return element;
+	}
+
+	private static int backOff(int spins) {
+		if (spins < SPINS) {
+			Thread.onSpinWait();
+			return spins + 1;
+		}
+		LockSupport.parkNanos(PARK_NANOS);
+		return spins;
+	}
+
+	@Override
+	public boolean hasData() {
+		return head.get() != tail.get();
+	}
+
+	/**
+	 * @return the number of elements in the cable
+	 */
+	public int size() {
+		return (int) (tail.get() - head.get());
+	}
+
+	/**
+	 * @return the maximal number of elements in the cable
+	 */
+	public int capacity() {
+		return elements.length;
+	}
+}
@@ -0,0 +1,79 @@
+package eit.medium;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.NoSuchElementException;
+import eit.linecode.TernaryBuffer;
+
+/**
+ * In this class, the encoded data streams are stored in the order in which they
+ * are transmitted, like in {@link Cable}.<br>
+ * the data streams are not kept as Strings but packed in
+ * {@link TernaryBuffer}s with 2 bits per symbol, so the cable needs about 4
+ * times less memory.<br>
+ * the String form is still accepted and returned, so the cable can be used
+ * everywhere a Line&lt;String[]&gt; is expected. the packed form can be
+ * transmitted and received without any conversion with
+ * {@link #transmit(TernaryBuffer[])} and {@link #receiveSymbols()}.
+ *
+ * @author Hamed Nakhei
+ */
+public class SymbolCable implements Line<String[]> {
+
+	private Deque<TernaryBuffer[]> data = new ArrayDeque<TernaryBuffer[]>();
+
+	/**
+	 * the data streams are packed before they are put in the cable
+	 */
+	@Override
+	public boolean transmit(String[] element) {
+		TernaryBuffer[] packed = new TernaryBuffer[element.length];
+		for (int i = 0; i < element.length; i++) {
+			packed[i] = TernaryBuffer.valueOf(element[i]);
+		}
+		return transmit(packed);
+	}
+
+	/**
+	 * put packed data streams in the cable
+	 *
+	 * @param element the packed data streams
+	 * @return true if is successful otherwise false.
+	 */
+	public boolean transmit(TernaryBuffer[] element) {
+		data.addLast(element);
+		return true;
+	}
+
+	/**
+	 * the data streams are converted back to the String form
+	 */
+	@Override
+	public String[] receive() throws NoSuchElementException {
+		TernaryBuffer[] packed = receiveSymbols();
+		String[] element = new String[packed.length];
+		for (int i = 0; i < packed.length; i++) {
+			element[i] = packed[i].toString();
+		}
+		return element;
+	}
+
+	/**
+	 * fetch packed data streams from the cable without any conversion
+	 *
+	 * @return the packed data streams
+	 * @throws NoSuchElementException if there are no datas in cable
+	 */
+	public TernaryBuffer[] receiveSymbols() throws NoSuchElementException {
+		if (this.hasData() == false) {
+			throw new NoSuchElementException();
+		}
+		return data.removeFirst();
+	}
+
+	@Override
+	public boolean hasData() {
+		return !data.isEmpty();
+	}
+
+}